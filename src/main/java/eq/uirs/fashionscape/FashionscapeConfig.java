@@ -1,5 +1,6 @@
 package eq.uirs.fashionscape;
 
+import eq.uirs.fashionscape.colors.ColorMatchMode;
 import eq.uirs.fashionscape.core.randomizer.RandomizerIntelligence;
 import eq.uirs.fashionscape.panel.SortBy;
 import net.runelite.client.config.Config;
@@ -14,6 +15,9 @@ public interface FashionscapeConfig extends Config
 	String KEY_EXCLUDE_MEMBERS = "excludeMembersItems";
 	String KEY_IMPORT_MENU_ENTRY = "copyMenuEntry";
 	String KEY_REAL_KITS = "realKitIds";
+	String KEY_COLOR_MATCH_MODE = "colorMatchMode";
+	String KEY_RANDOMIZER_INTELLIGENCE = "randomizerIntelligence";
+	String KEY_EXCLUDE_BASE_MODELS = "excludeBaseModels";
 
 	@ConfigItem(
 		position = 1,
@@ -37,16 +41,27 @@ public interface FashionscapeConfig extends Config
 		return true;
 	}
 
+	@ConfigItem(
+		position = 3,
+		keyName = KEY_COLOR_MATCH_MODE,
+		name = "Colour matching",
+		description = "How colour similarity is judged when sorting search results and randomizing"
+	)
+	default ColorMatchMode colorMatchMode()
+	{
+		return ColorMatchMode.RGB;
+	}
+
 	@ConfigSection(
 		name = "Randomizer",
 		description = "Settings relating to the outfit randomizer",
-		position = 3
+		position = 4
 	)
 	String randomizerSettings = "randomizerSettings";
 
 	@ConfigItem(
 		position = 0,
-		keyName = "randomizerIntelligence",
+		keyName = KEY_RANDOMIZER_INTELLIGENCE,
 		name = "Intelligence",
 		description = "Randomizer will utilize colour matching with higher settings",
 		section = randomizerSettings
@@ -58,7 +73,7 @@ public interface FashionscapeConfig extends Config
 
 	@ConfigItem(
 		position = 1,
-		keyName = "excludeBaseModels",
+		keyName = KEY_EXCLUDE_BASE_MODELS,
 		name = "Exclude base models",
 		description = "Randomizer will not shuffle base models (e.g., hair) if checked",
 		section = randomizerSettings
@@ -1,18 +1,20 @@
 package eq.uirs.fashionscape;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Provides;
+import eq.uirs.fashionscape.colors.ColorScorer;
 import eq.uirs.fashionscape.core.ConfigHelper;
 import eq.uirs.fashionscape.core.FashionManager;
 import eq.uirs.fashionscape.core.layer.Layers;
 import eq.uirs.fashionscape.core.layer.ModelType;
 import eq.uirs.fashionscape.core.model.ModelInfo;
-import eq.uirs.fashionscape.core.randomizer.Randomizer;
 import eq.uirs.fashionscape.overlay.DebugOverlay;
 import eq.uirs.fashionscape.panel.FashionscapePanel;
 import eq.uirs.fashionscape.remote.RemoteDataHandler;
 import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.Set;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -46,6 +48,10 @@ import net.runelite.client.util.ImageUtil;
 public class FashionscapePlugin extends Plugin
 {
 	private static final String COPY_PLAYER = "Copy-fashion";
+	// config keys that affect how outfits are randomized
+	private static final Set<String> RANDOMIZER_KEYS = ImmutableSet.of(FashionscapeConfig.KEY_EXCLUDE_MEMBERS,
+		FashionscapeConfig.KEY_RANDOMIZER_INTELLIGENCE, FashionscapeConfig.KEY_EXCLUDE_BASE_MODELS,
+		FashionscapeConfig.KEY_COLOR_MATCH_MODE);
 
 	@Inject
 	private ClientToolbar clientToolbar;
@@ -69,7 +75,7 @@ public class FashionscapePlugin extends Plugin
 	private Layers layers;
 
 	@Inject
-	private Randomizer randomizer;
+	private ColorScorer colorScorer;
 
 	@Inject
 	private FashionscapeConfig config;
@@ -184,19 +190,29 @@ public class FashionscapePlugin extends Plugin
 		{
 			return;
 		}
+		if (RANDOMIZER_KEYS.contains(event.getKey()))
+		{
+			// outfits generated ahead of time no longer follow the config
+			fashionManager.discardGeneratedOutfits();
+		}
 		if (event.getKey().equals(FashionscapeConfig.KEY_EXCLUDE_MEMBERS))
 		{
-			// reload displayed results
+			// reload displayed results. the randomizer picks its members filter as it goes, so it needs no rebuild
 			clientThread.invokeLater(() -> {
 				panel.reloadResults();
 				panel.refreshKitsPanel();
-				randomizer.repopulateMemo();
 			});
 		}
 		else if (event.getKey().equals(FashionscapeConfig.KEY_IMPORT_MENU_ENTRY))
 		{
 			refreshMenuEntries();
 		}
+		else if (event.getKey().equals(FashionscapeConfig.KEY_COLOR_MATCH_MODE))
+		{
+			// re-sort displayed results with the new distance
+			colorScorer.invalidatePalettes();
+			clientThread.invokeLater(panel::reloadResults);
+		}
 	}
 
 	@Subscribe
@@ -243,7 +259,7 @@ public class FashionscapePlugin extends Plugin
 	// registers/unregisters these at startup/shutdown
 	private List<Object> getEventSubscribers()
 	{
-		return ImmutableList.of(configHelper, panel);
+		return ImmutableList.of(configHelper, panel, fashionManager);
 	}
 
 }
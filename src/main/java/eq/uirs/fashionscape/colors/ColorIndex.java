@@ -0,0 +1,272 @@
+package eq.uirs.fashionscape.colors;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import lombok.Value;
+
+/**
+ * k-d tree over the Lab values of items' dominant colours, for finding the items closest to a colour without
+ * scoring every item. Items are identified by caller-provided keys (e.g. positions in another list).
+ */
+public class ColorIndex
+{
+	// each item is represented by (up to) this many of its largest colours
+	static final int DOMINANT_COLORS = 3;
+
+	// same scale as LabColor.distance
+	private static final float MAX_DISTANCE = 100f;
+
+	@Value
+	public static class Match
+	{
+		int key;
+		// scaled from 0 (identical) to 1 (complete mismatch)
+		double distance;
+	}
+
+	// tree is implicit: the node of range [lo, hi) is its middle point, split on axis (depth % 3)
+	private final float[] points;
+	private final int[] keys;
+
+	/**
+	 * @param itemKeys   key for each item, returned when the item matches
+	 * @param itemColors colours of the item at the same position
+	 */
+	public ColorIndex(int[] itemKeys, List<ItemColors> itemColors)
+	{
+		List<float[]> labs = new ArrayList<>();
+		List<Integer> labKeys = new ArrayList<>();
+		for (int i = 0; i < itemKeys.length; i++)
+		{
+			ItemColors colors = itemColors.get(i);
+			for (int c : dominant(colors))
+			{
+				labs.add(new float[]{colors.lab[3 * c], colors.lab[3 * c + 1], colors.lab[3 * c + 2]});
+				labKeys.add(itemKeys[i]);
+			}
+		}
+		points = new float[labs.size() * 3];
+		keys = new int[labs.size()];
+		for (int i = 0; i < keys.length; i++)
+		{
+			System.arraycopy(labs.get(i), 0, points, 3 * i, 3);
+			keys[i] = labKeys.get(i);
+		}
+		build(0, keys.length, 0);
+	}
+
+	public int size()
+	{
+		return keys.length;
+	}
+
+	/**
+	 * Finds up to `count` distinct keys whose colours are closest to the given rgb, nearest first.
+	 * Points whose key is rejected by `accept` are skipped entirely.
+	 */
+	public List<Match> nearest(int rgb, int count, IntPredicate accept)
+	{
+		float[] target = new float[3];
+		LabColor.fromRgb(rgb, target, 0);
+		// an item has at most DOMINANT_COLORS points, so this many points always covers `count` distinct items
+		Neighbours neighbours = new Neighbours(count * DOMINANT_COLORS);
+		search(0, keys.length, 0, target, accept, neighbours);
+
+		Map<Integer, Float> closest = new HashMap<>();
+		for (int i = 0; i < neighbours.size; i++)
+		{
+			closest.merge(keys[neighbours.indices[i]], neighbours.distances[i], Math::min);
+		}
+		List<Match> result = new ArrayList<>(closest.size());
+		closest.forEach((key, d) -> result.add(new Match(key, Math.min(1.0, Math.sqrt(d) / MAX_DISTANCE))));
+		result.sort(Comparator.comparingDouble(Match::getDistance).thenComparingInt(Match::getKey));
+		return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+	}
+
+	// positions of the item's largest colours
+	private static int[] dominant(ItemColors colors)
+	{
+		int n = Math.min(DOMINANT_COLORS, colors.size());
+		int[] result = new int[n];
+		boolean[] taken = new boolean[colors.size()];
+		for (int k = 0; k < n; k++)
+		{
+			int best = -1;
+			for (int c = 0; c < colors.size(); c++)
+			{
+				if (!taken[c] && (best < 0 || colors.pct[c] > colors.pct[best]))
+				{
+					best = c;
+				}
+			}
+			taken[best] = true;
+			result[k] = best;
+		}
+		return result;
+	}
+
+	private void build(int lo, int hi, int depth)
+	{
+		if (hi - lo <= 1)
+		{
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, depth % 3);
+		build(lo, mid, depth + 1);
+		build(mid + 1, hi, depth + 1);
+	}
+
+	// quickselect: rearranges [lo, hi] so that point k is in its sorted position along the axis
+	private void select(int lo, int hi, int k, int axis)
+	{
+		while (lo < hi)
+		{
+			float pivot = points[3 * ((lo + hi) >>> 1) + axis];
+			int i = lo;
+			int j = hi;
+			while (i <= j)
+			{
+				while (points[3 * i + axis] < pivot)
+				{
+					i++;
+				}
+				while (points[3 * j + axis] > pivot)
+				{
+					j--;
+				}
+				if (i <= j)
+				{
+					swap(i++, j--);
+				}
+			}
+			if (k <= j)
+			{
+				hi = j;
+			}
+			else if (k >= i)
+			{
+				lo = i;
+			}
+			else
+			{
+				return;
+			}
+		}
+	}
+
+	private void swap(int a, int b)
+	{
+		for (int c = 0; c < 3; c++)
+		{
+			float p = points[3 * a + c];
+			points[3 * a + c] = points[3 * b + c];
+			points[3 * b + c] = p;
+		}
+		int key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+	}
+
+	private void search(int lo, int hi, int depth, float[] target, IntPredicate accept, Neighbours neighbours)
+	{
+		if (lo >= hi)
+		{
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (accept.test(keys[mid]))
+		{
+			float dl = target[0] - points[3 * mid];
+			float da = target[1] - points[3 * mid + 1];
+			float db = target[2] - points[3 * mid + 2];
+			neighbours.offer(mid, dl * dl + da * da + db * db);
+		}
+		int axis = depth % 3;
+		float diff = target[axis] - points[3 * mid + axis];
+		boolean lowerFirst = diff < 0;
+		search(lowerFirst ? lo : mid + 1, lowerFirst ? mid : hi, depth + 1, target, accept, neighbours);
+		// the other side can only hold closer points if the splitting plane is within the current worst distance
+		if (!neighbours.isFull() || diff * diff < neighbours.worst())
+		{
+			search(lowerFirst ? mid + 1 : lo, lowerFirst ? hi : mid, depth + 1, target, accept, neighbours);
+		}
+	}
+
+	/**
+	 * Bounded max-heap of the closest points seen so far, by squared distance
+	 */
+	private static class Neighbours
+	{
+		private final int[] indices;
+		private final float[] distances;
+		private int size;
+
+		Neighbours(int capacity)
+		{
+			indices = new int[capacity];
+			distances = new float[capacity];
+		}
+
+		boolean isFull()
+		{
+			return size == indices.length;
+		}
+
+		float worst()
+		{
+			return distances[0];
+		}
+
+		void offer(int index, float distance)
+		{
+			if (indices.length == 0)
+			{
+				return;
+			}
+			if (!isFull())
+			{
+				// sift up
+				int i = size++;
+				while (i > 0 && distances[(i - 1) / 2] < distance)
+				{
+					indices[i] = indices[(i - 1) / 2];
+					distances[i] = distances[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				indices[i] = index;
+				distances[i] = distance;
+			}
+			else if (distance < distances[0])
+			{
+				// replace the root and sift down
+				int i = 0;
+				while (true)
+				{
+					int child = 2 * i + 1;
+					if (child >= size)
+					{
+						break;
+					}
+					if (child + 1 < size && distances[child + 1] > distances[child])
+					{
+						child++;
+					}
+					if (distances[child] <= distance)
+					{
+						break;
+					}
+					indices[i] = indices[child];
+					distances[i] = distances[child];
+					i = child;
+				}
+				indices[i] = index;
+				distances[i] = distance;
+			}
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package eq.uirs.fashionscape.colors;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * How the distance between two colours is measured when matching items to the player's outfit
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ColorMatchMode
+{
+	RGB("Simple (RGB)"),
+	PERCEPTUAL("Perceptual (Lab)");
+
+	private final String displayName;
+
+	@Override
+	public String toString()
+	{
+		return displayName;
+	}
+}
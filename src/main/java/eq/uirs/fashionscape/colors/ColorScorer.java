@@ -1,5 +1,6 @@
 package eq.uirs.fashionscape.colors;
 
+import eq.uirs.fashionscape.FashionscapeConfig;
 import eq.uirs.fashionscape.core.CompositionHelper;
 import eq.uirs.fashionscape.core.SlotInfo;
 import eq.uirs.fashionscape.core.layer.Layers;
@@ -7,14 +8,11 @@ import eq.uirs.fashionscape.data.color.ColorType;
 import eq.uirs.fashionscape.data.color.Colorable;
 import eq.uirs.fashionscape.data.kit.JawIcon;
 import eq.uirs.fashionscape.data.kit.JawKit;
-import eq.uirs.fashionscape.remote.RemoteData;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.RequiredArgsConstructor;
@@ -28,41 +26,71 @@ import net.runelite.api.kit.KitType;
 @RequiredArgsConstructor(onConstructor_ = {@Inject})
 public class ColorScorer
 {
+	// single-color wrappers for Colorables, so their Lab values are only computed once
+	private static final Map<Integer, ItemColors> SINGLE_COLORS = new ConcurrentHashMap<>();
+
 	private final Layers layers;
 	private final CompositionHelper compositionHelper;
+	private final FashionscapeConfig config;
 
-	private final Map<KitType, List<ItemColorInfo>> kitColors = new ConcurrentHashMap<>();
-	private final Map<ColorType, Colorable> playerColors = new ConcurrentHashMap<>();
-
-	private Integer gender;
+	// colours of the current outfit
+	private final PlayerColors current = createPlayerColors();
 
+	/**
+	 * Snapshot of the player's colours (optionally excluding a slot), normalized to sum to 1.
+	 * Computed once and reused when scoring many items against the same outfit.
+	 */
 	@Value
-	private static class Score
+	public static class Palette
 	{
-		// color similarity (scaled 0-1)
-		double match;
-		// area percentage (0-1) of the match, relative to item or player
-		double percentage;
+		ItemColors colors;
+		// read from config when the palette is captured, so scoring doesn't need to look it up per item
+		ColorMatchMode mode;
+
+		/**
+		 * The rgb covering the largest share of the palette, or null if the palette is empty
+		 */
+		@Nullable
+		public Integer getDominantRgb()
+		{
+			Integer result = null;
+			double max = 0;
+			for (int i = 0; i < colors.size(); i++)
+			{
+				if (result == null || colors.pct[i] > max)
+				{
+					result = colors.rgb[i];
+					max = colors.pct[i];
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Creates an empty set of outfit colours to score against, independent of the current outfit
+	 */
+	public PlayerColors createPlayerColors()
+	{
+		return new PlayerColors(() -> config.colorMatchMode());
 	}
 
 	// this should be called before scoring if relying on current player info
 	public void updatePlayerInfo()
 	{
-		kitColors.clear();
 		PlayerComposition composition = compositionHelper.getLocal();
 		if (composition == null)
 		{
+			current.setPlayerInfo(Collections.emptyMap(), Collections.emptyMap(), current.getGender());
 			return;
 		}
-		playerColors.clear();
-		playerColors.putAll(layers.getVirtualModels().getColors().getAllColorable());
-		gender = composition.getGender();
+		Map<KitType, Integer> itemIds = new HashMap<>();
 		for (KitType slot : KitType.values())
 		{
 			SlotInfo slotInfo = layers.getVirtualModels().getItems().get(slot);
 			if (slotInfo != null)
 			{
-				kitColors.put(slot, colorsFor(slotInfo.getItemId()));
+				itemIds.put(slot, slotInfo.getItemId());
 			}
 		}
 		JawIcon icon = layers.getVirtualModels().getIcon();
@@ -71,42 +99,27 @@ public class ColorScorer
 			Integer iconItemId = JawKit.NO_JAW.getIconItemId(icon);
 			if (iconItemId != null)
 			{
-				kitColors.put(KitType.JAW, colorsFor(iconItemId));
+				itemIds.put(KitType.JAW, iconItemId);
 			}
 		}
+		current.setPlayerInfo(itemIds, layers.getVirtualModels().getColors().getAllColorable(),
+			composition.getGender());
 	}
 
 	public void setPlayerInfo(Map<KitType, Integer> itemIds, Map<ColorType, Colorable> colors)
 	{
-		kitColors.clear();
-		playerColors.clear();
-		playerColors.putAll(colors);
-		for (Map.Entry<KitType, Integer> entry : itemIds.entrySet())
-		{
-			kitColors.put(entry.getKey(), colorsFor(entry.getValue()));
-		}
 		PlayerComposition composition = compositionHelper.getLocal();
-		if (composition == null)
-		{
-			return;
-		}
-		gender = composition.getGender();
+		current.setPlayerInfo(itemIds, colors, composition != null ? composition.getGender() : current.getGender());
 	}
 
 	public void addPlayerInfo(KitType slot, Integer itemId)
 	{
-		if (itemId != null)
-		{
-			kitColors.put(slot, colorsFor(itemId));
-		}
+		current.addPlayerInfo(slot, itemId);
 	}
 
 	public void addPlayerColor(ColorType type, Colorable colorable)
 	{
-		if (colorable != null)
-		{
-			playerColors.put(type, colorable);
-		}
+		current.addPlayerColor(type, colorable);
 	}
 
 	/**
@@ -115,8 +128,7 @@ public class ColorScorer
 	 */
 	public double score(int itemId, KitType exclude)
 	{
-		List<ItemColorInfo> colors = colorsFor(itemId);
-		return score(colors, exclude, null);
+		return current.score(itemId, exclude);
 	}
 
 	/**
@@ -125,97 +137,95 @@ public class ColorScorer
 	 */
 	public double score(Colorable colorable, ColorType exclude)
 	{
-		int rgb = colorable.getColor().getRGB();
-		List<ItemColorInfo> colors = Collections.singletonList(new ItemColorInfo(rgb, 1.0));
-		return score(colors, null, exclude);
+		return current.score(colorable, exclude);
 	}
 
-	private double score(List<ItemColorInfo> colors, KitType excludeKit, ColorType excludeColor)
+	/**
+	 * Captures the current player's colours, excluding the given slot, for use with `score(int, Palette)`
+	 */
+	public Palette palette(KitType exclude)
 	{
-		if (colors.isEmpty())
-		{
-			return 0;
-		}
-		Map<Integer, Double> playerInfo = getPlayerRgbInfo(excludeKit, excludeColor);
-		if (playerInfo.isEmpty())
+		return current.palette(exclude);
+	}
+
+	/**
+	 * scores color similarity between an item and a previously captured palette.
+	 * Safe to call from multiple threads at once.
+	 */
+	public double score(int itemId, Palette palette)
+	{
+		return current.score(itemId, palette);
+	}
+
+	/**
+	 * Gender of the current player info, if known
+	 */
+	@Nullable
+	public Integer getGender()
+	{
+		return current.getGender();
+	}
+
+	/**
+	 * Discards cached player palettes. Should be called when the colour matching config changes.
+	 */
+	public void invalidatePalettes()
+	{
+		current.invalidatePalettes();
+	}
+
+	static ItemColors singleColor(int rgb)
+	{
+		return SINGLE_COLORS.computeIfAbsent(rgb, c -> new ItemColors(new int[]{c}, new double[]{1.0}));
+	}
+
+	// allocation-free, since this runs for every candidate item when searching or randomizing
+	static double score(ItemColors colors, Palette palette)
+	{
+		ItemColors player = palette.colors;
+		if (colors.size() == 0 || player.size() == 0)
 		{
 			return 0;
 		}
+		boolean perceptual = palette.mode == ColorMatchMode.PERCEPTUAL;
 		// compute an aggregate score relative to the item/color target
-		List<Score> scoresTarget = new ArrayList<>();
-		for (ItemColorInfo c : colors)
+		double targetScore = 0;
+		for (int i = 0; i < colors.size(); i++)
 		{
-			playerInfo.entrySet().stream()
-				.min(Comparator.comparingDouble(e -> colorDistance(c.rgb, e.getKey())))
-				.map(e -> new Score(1.0 - colorDistance(c.rgb, e.getKey()), c.pct))
-				.ifPresent(scoresTarget::add);
+			double match = 1.0 - nearestDistance(colors, i, player, perceptual);
+			targetScore += match * match * colors.pct[i];
 		}
-		double targetScore = scoresTarget.stream()
-			.mapToDouble(s -> s.match * s.match * s.percentage)
-			.sum();
 		// compute an aggregate score relative to the player
-		List<Score> scoresPlayer = new ArrayList<>();
-		for (Map.Entry<Integer, Double> e : playerInfo.entrySet())
+		double playerScore = 0;
+		for (int i = 0; i < player.size(); i++)
 		{
-			colors.stream()
-				.min(Comparator.comparingDouble(c -> colorDistance(c.rgb, e.getKey())))
-				.map(c -> new Score(1.0 - colorDistance(c.rgb, e.getKey()), e.getValue()))
-				.ifPresent(scoresPlayer::add);
+			double match = 1.0 - nearestDistance(player, i, colors, perceptual);
+			playerScore += match * match * player.pct[i];
 		}
-		double playerScore = scoresPlayer.stream()
-			.mapToDouble(s -> s.match * s.match * s.percentage)
-			.sum();
 		// more weighting in relation to the target itself seems to yield better results
 		return (3.0 * targetScore + playerScore) / 4.0;
 	}
 
+	// distance from color i of `from` to the closest color in `to`
+	private static double nearestDistance(ItemColors from, int i, ItemColors to, boolean perceptual)
+	{
+		double min = Double.MAX_VALUE;
+		for (int j = 0; j < to.size(); j++)
+		{
+			double distance = perceptual ?
+				LabColor.distance(from.lab, i, to.lab, j) :
+				colorDistance(from.rgb[i], to.rgb[j]);
+			min = Math.min(min, distance);
+		}
+		return min;
+	}
+
 	// Standard Euclidean color distance scaled from 0 (best) to 1 (worst)
-	private double colorDistance(int c1, int c2)
+	private static double colorDistance(int c1, int c2)
 	{
 		double deltaR = (((c1 >> 16) & 0xFF) - ((c2 >> 16) & 0xFF)) / 255.0;
 		double deltaG = (((c1 >> 8) & 0xFF) - ((c2 >> 8) & 0xFF)) / 255.0;
 		double deltaB = ((c1 & 0xFF) - (c2 & 0xFF)) / 255.0;
 		return Math.sqrt((deltaR * deltaR + deltaG * deltaG + deltaB * deltaB) / 3.0);
 	}
-
-	private List<ItemColorInfo> colorsFor(int itemId)
-	{
-		GenderItemColors genderColors = RemoteData.ITEM_ID_TO_COLORS.get(itemId);
-		if (genderColors != null)
-		{
-			if (genderColors.any != null)
-			{
-				return genderColors.any.itemColorInfo;
-			}
-			else if (gender != null)
-			{
-				switch (gender)
-				{
-					case 0:
-						return genderColors.masc.itemColorInfo;
-					case 1:
-						return genderColors.fem.itemColorInfo;
-				}
-			}
-		}
-		return new ArrayList<>();
-	}
-
-	// Maps rgb -> summed percentage in player, excluding the given slot or color type
-	private Map<Integer, Double> getPlayerRgbInfo(KitType excludeKit, ColorType excludeColor)
-	{
-		Map<Integer, Double> unscaled = kitColors.entrySet().stream()
-			.filter(e -> e.getKey() != excludeKit)
-			.map(Map.Entry::getValue)
-			.flatMap(List::stream)
-			.collect(Collectors.toMap(ItemColorInfo::getRgb, ItemColorInfo::getPct, Double::sum));
-		Map<Integer, Double> unscaledColors = playerColors.entrySet().stream()
-			.filter(e -> e.getKey() != excludeColor)
-			.map(Map.Entry::getValue)
-			.collect(Collectors.toMap(c -> c.getColor().getRGB(), c -> 1.0, Double::sum));
-		unscaledColors.forEach((rgb, score) -> unscaled.merge(rgb, score, Double::sum));
-		final Double scale = unscaled.values().stream().mapToDouble(d -> d).sum();
-		return unscaled.entrySet().stream()
-			.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue() / scale));
-	}
 }
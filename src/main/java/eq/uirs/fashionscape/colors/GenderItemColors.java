@@ -1,6 +1,7 @@
 package eq.uirs.fashionscape.colors;
 
 import com.google.gson.annotations.SerializedName;
+import javax.annotation.Nullable;
 import lombok.Value;
 
 @Value
@@ -12,4 +13,27 @@ public class GenderItemColors
 	public ItemColors masc;
 	@SerializedName("f")
 	public ItemColors fem;
+
+	/**
+	 * The colours shown for the given gender (0 = masc, 1 = fem), or null if unknown
+	 */
+	@Nullable
+	public ItemColors forGender(@Nullable Integer gender)
+	{
+		if (any != null)
+		{
+			return any;
+		}
+		else if (gender != null)
+		{
+			switch (gender)
+			{
+				case 0:
+					return masc;
+				case 1:
+					return fem;
+			}
+		}
+		return null;
+	}
 }
@@ -1,10 +0,0 @@
-package eq.uirs.fashionscape.colors;
-
-import lombok.Value;
-
-@Value
-public class ItemColorInfo
-{
-	public int rgb;
-	public double pct;
-}
@@ -6,14 +6,38 @@ import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.List;
 import lombok.Value;
 
+/**
+ * An item's colours, packed into parallel arrays so that scoring can loop over them without boxing.
+ * Lab equivalents are computed up front, since perceptual matching would otherwise convert on every comparison.
+ */
 @Value
 public class ItemColors
 {
-	public List<ItemColorInfo> itemColorInfo;
+	public static final ItemColors EMPTY = new ItemColors(new int[0], new double[0]);
+
+	public int[] rgb;
+	// area percentage (0-1) of the color at the same index
+	public double[] pct;
+	// L, a, b components for each color (3 floats per rgb)
+	public float[] lab;
+
+	public ItemColors(int[] rgb, double[] pct)
+	{
+		this.rgb = rgb;
+		this.pct = pct;
+		this.lab = new float[rgb.length * 3];
+		for (int i = 0; i < rgb.length; i++)
+		{
+			LabColor.fromRgb(rgb[i], lab, 3 * i);
+		}
+	}
+
+	public int size()
+	{
+		return rgb.length;
+	}
 
 	public static class Deserializer implements JsonDeserializer<ItemColors>
 	{
@@ -21,17 +45,17 @@ public class ItemColors
 		public ItemColors deserialize(JsonElement jsonElement, Type type,
 									  JsonDeserializationContext jsonDeserializationContext) throws JsonParseException
 		{
-			List<ItemColorInfo> info = new ArrayList<>();
 			JsonArray outer = jsonElement.getAsJsonArray();
 			JsonArray rgbs = outer.get(0).getAsJsonArray();
 			JsonArray pcts = outer.get(1).getAsJsonArray();
-			for (int i = 0; i < rgbs.size(); i++)
+			int[] rgb = new int[rgbs.size()];
+			double[] pct = new double[rgbs.size()];
+			for (int i = 0; i < rgb.length; i++)
 			{
-				int rgb = rgbs.get(i).getAsInt();
-				double pct = pcts.get(i).getAsDouble();
-				info.add(new ItemColorInfo(rgb, pct));
+				rgb[i] = rgbs.get(i).getAsInt();
+				pct[i] = pcts.get(i).getAsDouble();
 			}
-			return new ItemColors(info);
+			return new ItemColors(rgb, pct);
 		}
 	}
 }
@@ -0,0 +1,59 @@
+package eq.uirs.fashionscape.colors;
+
+/**
+ * Conversion from sRGB to CIELAB (D65 white point). Lab is roughly perceptually uniform, so straight-line
+ * distance between two Lab colours tracks how different they look far better than distance in RGB.
+ */
+public class LabColor
+{
+	// distance at (and beyond) which colours are considered a complete mismatch, i.e. black to white
+	private static final float MAX_DISTANCE = 100f;
+
+	// D65 reference white
+	private static final double XN = 0.95047;
+	private static final double YN = 1.0;
+	private static final double ZN = 1.08883;
+
+	private LabColor()
+	{
+	}
+
+	/**
+	 * Writes the L, a, b components of the (alpha-ignored) rgb color into `out`, starting at `offset`
+	 */
+	public static void fromRgb(int rgb, float[] out, int offset)
+	{
+		double r = linearize((rgb >> 16) & 0xFF);
+		double g = linearize((rgb >> 8) & 0xFF);
+		double b = linearize(rgb & 0xFF);
+		double fx = f((0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / XN);
+		double fy = f((0.2126729 * r + 0.7151522 * g + 0.0721750 * b) / YN);
+		double fz = f((0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / ZN);
+		out[offset] = (float) (116 * fy - 16);
+		out[offset + 1] = (float) (500 * (fx - fy));
+		out[offset + 2] = (float) (200 * (fy - fz));
+	}
+
+	/**
+	 * CIE76 colour difference between the Lab triples at index i of `a` and index j of `b`,
+	 * scaled from 0 (identical) to 1 (as different as black and white, or more)
+	 */
+	public static double distance(float[] a, int i, float[] b, int j)
+	{
+		float dl = a[3 * i] - b[3 * j];
+		float da = a[3 * i + 1] - b[3 * j + 1];
+		float db = a[3 * i + 2] - b[3 * j + 2];
+		return Math.min(1.0, Math.sqrt(dl * dl + da * da + db * db) / MAX_DISTANCE);
+	}
+
+	private static double linearize(int channel)
+	{
+		double c = channel / 255.0;
+		return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+	}
+
+	private static double f(double t)
+	{
+		return t > 216.0 / 24389.0 ? Math.cbrt(t) : (24389.0 / 27.0 * t + 16) / 116;
+	}
+}
@@ -0,0 +1,187 @@
+package eq.uirs.fashionscape.colors;
+
+import eq.uirs.fashionscape.data.color.ColorType;
+import eq.uirs.fashionscape.data.color.Colorable;
+import eq.uirs.fashionscape.remote.RemoteData;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import net.runelite.api.kit.KitType;
+
+/**
+ * The colours of an outfit that items and colours are scored against.
+ * ColorScorer keeps one for the current outfit; background work (e.g. randomizing) can create its own via
+ * `ColorScorer.createPlayerColors` so that it doesn't disturb the current one.
+ */
+public class PlayerColors
+{
+	private final Supplier<ColorMatchMode> matchMode;
+
+	private final Map<KitType, ItemColors> kitColors = new ConcurrentHashMap<>();
+	private final Map<ColorType, Colorable> playerColors = new ConcurrentHashMap<>();
+
+	// normalized palettes by what they exclude, indexed by kit ordinal + 1 (0 excludes nothing) and color ordinal.
+	// replaced whenever the info above changes. racing writes are harmless since they compute equal palettes
+	private volatile Palettes palettes = new Palettes();
+
+	// determines which colours gendered items have, if known
+	@Getter
+	private volatile Integer gender;
+
+	private static class Palettes
+	{
+		final ColorScorer.Palette[] byKit = new ColorScorer.Palette[KitType.values().length + 1];
+		final ColorScorer.Palette[] byColor = new ColorScorer.Palette[ColorType.values().length];
+	}
+
+	PlayerColors(Supplier<ColorMatchMode> matchMode)
+	{
+		this.matchMode = matchMode;
+	}
+
+	public void setPlayerInfo(Map<KitType, Integer> itemIds, Map<ColorType, Colorable> colors,
+							  @Nullable Integer gender)
+	{
+		this.gender = gender;
+		kitColors.clear();
+		playerColors.clear();
+		playerColors.putAll(colors);
+		for (Map.Entry<KitType, Integer> entry : itemIds.entrySet())
+		{
+			kitColors.put(entry.getKey(), colorsFor(entry.getValue()));
+		}
+		invalidatePalettes();
+	}
+
+	public void addPlayerInfo(KitType slot, Integer itemId)
+	{
+		if (itemId != null)
+		{
+			kitColors.put(slot, colorsFor(itemId));
+			invalidatePalettes();
+		}
+	}
+
+	public void addPlayerColor(ColorType type, Colorable colorable)
+	{
+		if (colorable != null)
+		{
+			playerColors.put(type, colorable);
+			invalidatePalettes();
+		}
+	}
+
+	/**
+	 * scores color similarity between an item and this outfit:
+	 * 1 is a perfect match, 0 is a complete mismatch
+	 */
+	public double score(int itemId, KitType exclude)
+	{
+		return score(colorsFor(itemId), exclude, null);
+	}
+
+	/**
+	 * scores color similarity between a Colorable and this outfit:
+	 * 1 is a perfect match, 0 is a complete mismatch
+	 */
+	public double score(Colorable colorable, ColorType exclude)
+	{
+		return score(ColorScorer.singleColor(colorable.getColor().getRGB()), null, exclude);
+	}
+
+	/**
+	 * Captures this outfit's colours, excluding the given slot, for use with `score(int, Palette)`
+	 */
+	public ColorScorer.Palette palette(KitType exclude)
+	{
+		return palette(exclude, null);
+	}
+
+	/**
+	 * scores color similarity between an item and a previously captured palette.
+	 * Safe to call from multiple threads at once.
+	 */
+	public double score(int itemId, ColorScorer.Palette palette)
+	{
+		return ColorScorer.score(colorsFor(itemId), palette);
+	}
+
+	void invalidatePalettes()
+	{
+		// palettes computed concurrently with a change land in the discarded map
+		palettes = new Palettes();
+	}
+
+	private double score(ItemColors colors, KitType excludeKit, ColorType excludeColor)
+	{
+		if (colors.size() == 0)
+		{
+			return 0;
+		}
+		return ColorScorer.score(colors, palette(excludeKit, excludeColor));
+	}
+
+	private ItemColors colorsFor(int itemId)
+	{
+		GenderItemColors genderColors = RemoteData.ITEM_ID_TO_COLORS.get(itemId);
+		ItemColors colors = genderColors != null ? genderColors.forGender(gender) : null;
+		return colors != null ? colors : ItemColors.EMPTY;
+	}
+
+	// at most one of the exclusions is non-null
+	private ColorScorer.Palette palette(KitType excludeKit, ColorType excludeColor)
+	{
+		Palettes current = palettes;
+		ColorScorer.Palette[] cache = excludeColor != null ? current.byColor : current.byKit;
+		int index = excludeColor != null ? excludeColor.ordinal() : excludeKit != null ? excludeKit.ordinal() + 1 : 0;
+		ColorScorer.Palette palette = cache[index];
+		if (palette == null)
+		{
+			palette = new ColorScorer.Palette(getPlayerRgbInfo(excludeKit, excludeColor), matchMode.get());
+			cache[index] = palette;
+		}
+		return palette;
+	}
+
+	// Sums percentages of each rgb in player, excluding the given slot or color type
+	private ItemColors getPlayerRgbInfo(KitType excludeKit, ColorType excludeColor)
+	{
+		Map<Integer, Double> unscaled = new HashMap<>();
+		for (Map.Entry<KitType, ItemColors> e : kitColors.entrySet())
+		{
+			if (e.getKey() != excludeKit)
+			{
+				ItemColors c = e.getValue();
+				for (int i = 0; i < c.size(); i++)
+				{
+					unscaled.merge(c.rgb[i], c.pct[i], Double::sum);
+				}
+			}
+		}
+		for (Map.Entry<ColorType, Colorable> e : playerColors.entrySet())
+		{
+			if (e.getKey() != excludeColor)
+			{
+				unscaled.merge(e.getValue().getColor().getRGB(), 1.0, Double::sum);
+			}
+		}
+		double scale = 0;
+		for (double pct : unscaled.values())
+		{
+			scale += pct;
+		}
+		int[] rgb = new int[unscaled.size()];
+		double[] pct = new double[unscaled.size()];
+		int i = 0;
+		for (Map.Entry<Integer, Double> e : unscaled.entrySet())
+		{
+			rgb[i] = e.getKey();
+			pct[i] = e.getValue() / scale;
+			i++;
+		}
+		return new ItemColors(rgb, pct);
+	}
+}
@@ -1,152 +1,290 @@
 package eq.uirs.fashionscape.core;
 
 import com.google.common.collect.ImmutableSet;
-import eq.uirs.fashionscape.FashionscapeConfig;
-import eq.uirs.fashionscape.core.utils.ItemSlotUtil;
+import eq.uirs.fashionscape.core.utils.AhoCorasick;
 import eq.uirs.fashionscape.data.MiscData;
 import eq.uirs.fashionscape.data.kit.BootsKit;
 import eq.uirs.fashionscape.remote.RemoteData;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.Client;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.kit.KitType;
-import net.runelite.client.game.ItemManager;
 
 /**
- * Builds sets of items to filter out (glitched items, duplicates, potentially members-only)
+ * Builds sets of items to filter out (glitched items and duplicates). Members items are filtered by whoever
+ * reads the catalog, since that depends on the config at the time.
+ * Safe to read from any thread; loading should only be started from the client thread.
  */
 @Singleton
 @Slf4j
 @RequiredArgsConstructor(onConstructor_ = {@Inject})
 public class Exclusions
 {
-	private static final Pattern PAREN_REPLACE = Pattern.compile("\\(.*\\)");
 	/**
 	 * kit ids of boot-slot equipment that, when detected in-game, will disable the boots, weapon and shield slots
 	 */
 	public static final Set<Integer> DISABLE_ANIM_BOOTS = ImmutableSet.of(BootsKit.MINECART.getKitId(0),
 		BootsKit.MINECART.getKitId(1));
 
-	private final Set<Integer> bad = new HashSet<>();
-	private final Set<Integer> dupes = new HashSet<>();
-	private final Set<Integer> members = new HashSet<>();
+	// replaced (never modified) whenever exclusions load, so they can be read from any thread
+	private volatile ItemSets itemSets = new ItemSets(new BitSet(), new BitSet());
+	// canonical equippable items that are neither bad nor duplicates. null until loaded
+	private volatile List<ItemCatalog.Item> equippable;
+	// identifies the latest call to loadAll, so that an older one finishing late can't replace its results
+	private final AtomicInteger generation = new AtomicInteger();
 
-	private final Client client;
-	private final ItemManager itemManager;
-	private final FashionscapeConfig config;
+	private final ItemCatalog itemCatalog;
 	private final IdleAnimations idleAnimations;
+	private final ScheduledExecutorService executorService;
 
+	// item ids by bit
 	@Value
-	private static class ItemDupeData
+	private static class ItemSets
 	{
-		int modelId;
-		short[] colorsToReplace;
-		short[] texturesToReplace;
-		String strippedName;
+		BitSet bad;
+		BitSet dupes;
 	}
 
 	/**
-	 * populates excluded items after remote data is fetched.
-	 * @return false if client doesn't have items populated
+	 * Open-addressing set of longs, so that many keys can be tracked without boxing each one
 	 */
-	public boolean loadAll()
+	private static class LongSet
 	{
-		// item count will be 0 if cache is not ready yet
-		if (client.getItemCount() == 0)
+		private long[] keys;
+		private boolean[] used;
+		private int size;
+
+		LongSet(int expected)
+		{
+			int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+			keys = new long[capacity];
+			used = new boolean[capacity];
+		}
+
+		/**
+		 * @return false if the key was already present
+		 */
+		boolean add(long key)
+		{
+			if (2 * (size + 1) > keys.length)
+			{
+				grow();
+			}
+			int mask = keys.length - 1;
+			int i = (int) key & mask;
+			while (used[i])
+			{
+				if (keys[i] == key)
+				{
+					return false;
+				}
+				i = (i + 1) & mask;
+			}
+			used[i] = true;
+			keys[i] = key;
+			size++;
+			return true;
+		}
+
+		private void grow()
+		{
+			long[] oldKeys = keys;
+			boolean[] oldUsed = used;
+			keys = new long[oldKeys.length * 2];
+			used = new boolean[oldKeys.length * 2];
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++)
+			{
+				if (oldUsed[i])
+				{
+					add(oldKeys[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Matches item names against all of the bad names, substrings and regexes at once
+	 */
+	private static class NameMatcher
+	{
+		private final Set<String> names;
+		private final AhoCorasick contains;
+		@Nullable
+		private final Pattern regex;
+
+		NameMatcher(MiscData miscData)
+		{
+			names = miscData.badItemNames;
+			contains = new AhoCorasick(new ArrayList<>(miscData.badItemContains));
+			// alternation finds a match wherever any of the individual regexes would
+			regex = miscData.badItemRegexes.isEmpty() ? null : Pattern.compile(miscData.badItemRegexes.stream()
+				.map(r -> "(?:" + r + ")")
+				.collect(Collectors.joining("|")));
+		}
+
+		boolean isBad(String name)
+		{
+			return names.contains(name) || contains.containsAny(name) || regex != null && regex.matcher(name).find();
+		}
+	}
+
+	/**
+	 * populates excluded items after remote data is fetched and the catalog is loaded. Item names are classified
+	 * on the executor, since that takes a while; `whenLoaded` is run there once the results are published.
+	 * @return false if the catalog hasn't loaded yet
+	 */
+	public boolean loadAll(Runnable whenLoaded)
+	{
+		List<ItemCatalog.Item> items = itemCatalog.getItems();
+		if (items == null)
 		{
 			return false;
 		}
 		// plugin checks for the presence of this before calling
 		MiscData miscData = RemoteData.MISC_DATA;
-		bad.addAll(miscData.badItemIds);
+		BitSet bad = (BitSet) itemSets.bad.clone();
+		BitSet dupes = (BitSet) itemSets.dupes.clone();
+		int current = generation.incrementAndGet();
+		executorService.execute(() -> {
+			try
+			{
+				classify(items, miscData, bad, dupes);
+			}
+			catch (Exception e)
+			{
+				log.warn("failed to load excluded items", e);
+				return;
+			}
+			if (generation.get() == current)
+			{
+				onLoaded(items, bad, dupes);
+				whenLoaded.run();
+			}
+		});
+		return true;
+	}
+
+	private static void classify(List<ItemCatalog.Item> items, MiscData miscData, BitSet bad, BitSet dupes)
+	{
+		miscData.badItemIds.stream()
+			.filter(id -> id >= 0)
+			.forEach(bad::set);
 		miscData.badItemRanges.forEach(range -> {
-			IntStream.range(range.startInclusive, range.endInclusive + 1)
-				.forEach(bad::add);
+			if (range.startInclusive >= 0 && range.startInclusive <= range.endInclusive)
+			{
+				bad.set(range.startInclusive, range.endInclusive + 1);
+			}
 		});
-		List<Pattern> badRegexes = miscData.badItemRegexes.stream()
-			.map(Pattern::compile)
-			.collect(Collectors.toList());
-		Set<ItemDupeData> itemUniques = new HashSet<>();
-		for (int i = 0; i < client.getItemCount(); i++)
+		// items are classified independently of each other, so spread that across cores
+		NameMatcher nameMatcher = new NameMatcher(miscData);
+		boolean[] badNames = new boolean[items.size()];
+		IntStream.range(0, items.size())
+			.parallel()
+			.forEach(i -> badNames[i] = nameMatcher.isBad(items.get(i).getName().toLowerCase()));
+		// the first of several duplicates is kept, so this part stays in order
+		LongSet looks = new LongSet(items.size());
+		for (int i = 0; i < items.size(); i++)
 		{
-			int canonical = itemManager.canonicalize(i);
-			if (i != canonical || bad.contains(canonical))
+			ItemCatalog.Item item = items.get(i);
+			int itemId = item.getItemId();
+			if (bad.get(itemId))
 			{
 				continue;
 			}
-			KitType slot = ItemSlotUtil.getSlot(i, itemManager);
-			if (slot != null)
+			if (badNames[i])
 			{
-				ItemComposition itemComposition = itemManager.getItemComposition(canonical);
-				if (slot == KitType.WEAPON)
-				{
-					idleAnimations.queue(itemComposition);
-				}
-				if (itemComposition.isMembers())
-				{
-					members.add(i);
-				}
-				String itemName = itemComposition.getMembersName().toLowerCase();
-				if (miscData.badItemNames.contains(itemName))
-				{
-					bad.add(i);
-					continue;
-				}
-				boolean foundBadContains = miscData.badItemContains.stream()
-					.anyMatch(itemName::contains);
-				if (foundBadContains)
-				{
-					bad.add(i);
-					continue;
-				}
-				boolean foundBadRegex = badRegexes.stream()
-					.anyMatch(regex -> regex.matcher(itemName).find());
-				if (foundBadRegex)
-				{
-					bad.add(i);
-					continue;
-				}
-				ItemDupeData itemDupeData = new ItemDupeData(
-					itemComposition.getInventoryModel(),
-					itemComposition.getColorToReplaceWith(),
-					itemComposition.getTextureToReplaceWith(),
-					stripName(itemName)
-				);
-				if (itemUniques.contains(itemDupeData))
-				{
-					dupes.add(canonical);
-					continue;
-				}
-				itemUniques.add(itemDupeData);
+				bad.set(itemId);
+				continue;
+			}
+			if (!looks.add(item.getLookHash()))
+			{
+				dupes.set(itemId);
 			}
 		}
-		return true;
 	}
 
-	public Set<Integer> getAll()
+	/**
+	 * Populates excluded items from a previous `loadAll` for the same catalog (see ItemCatalogCache)
+	 */
+	public void restore(List<ItemCatalog.Item> items, int[] badIds, int[] dupeIds)
+	{
+		// a load still running would otherwise replace these
+		generation.incrementAndGet();
+		BitSet bad = (BitSet) itemSets.bad.clone();
+		BitSet dupes = (BitSet) itemSets.dupes.clone();
+		Arrays.stream(badIds).forEach(bad::set);
+		Arrays.stream(dupeIds).forEach(dupes::set);
+		onLoaded(items, bad, dupes);
+	}
+
+	public int[] getBadIds()
+	{
+		return itemSets.bad.stream().toArray();
+	}
+
+	public int[] getDupeIds()
 	{
-		Set<Integer> result = new HashSet<>(bad);
-		result.addAll(dupes);
-		if (config.excludeMembersItems())
+		return itemSets.dupes.stream().toArray();
+	}
+
+	// the parts of loading that don't depend on classifying names, so they don't need to be saved
+	private void onLoaded(List<ItemCatalog.Item> items, BitSet bad, BitSet dupes)
+	{
+		List<ItemCatalog.Item> found = new ArrayList<>();
+		List<ItemCatalog.Item> weapons = new ArrayList<>();
+		for (ItemCatalog.Item item : items)
 		{
-			result.addAll(members);
+			int itemId = item.getItemId();
+			if (item.getSlot() == KitType.WEAPON)
+			{
+				weapons.add(item);
+			}
+			if (!bad.get(itemId) && !dupes.get(itemId))
+			{
+				found.add(item);
+			}
 		}
-		return result;
+		itemSets = new ItemSets(bad, dupes);
+		equippable = Collections.unmodifiableList(found);
+		idleAnimations.resolveAll(weapons);
+	}
+
+	/**
+	 * Catalog items that are neither bad nor duplicates, including members items.
+	 *
+	 * @return null if exclusions haven't loaded yet
+	 */
+	@Nullable
+	public List<ItemCatalog.Item> getEquippable()
+	{
+		return equippable;
+	}
+
+	/**
+	 * Whether the item is glitched or a duplicate, regardless of the members config
+	 */
+	public boolean isBadOrDupe(int itemId)
+	{
+		return isBadOrDupe(itemSets, itemId);
 	}
 
-	private String stripName(String name)
+	private static boolean isBadOrDupe(ItemSets sets, int itemId)
 	{
-		String noParens = PAREN_REPLACE.matcher(name).replaceAll("");
-		return noParens.replaceAll("[^A-Za-z]+", "");
+		return itemId >= 0 && (sets.bad.get(itemId) || sets.dupes.get(itemId));
 	}
 }
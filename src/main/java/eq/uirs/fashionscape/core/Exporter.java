@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.PlayerComposition;
@@ -50,6 +51,10 @@ public class Exporter
 {
 	public static final File OUTFITS_DIR = new File(RuneLite.RUNELITE_DIR, "outfits");
 	public static final Pattern PROFILE_PATTERN = Pattern.compile("^(\\w+):(-?\\d+).*");
+	// allows item slots to be written by name instead of id, e.g. "HEAD:Rune med helm"
+	public static final Pattern NAME_PATTERN = Pattern.compile("^(\\w+):\\s*(.*)$");
+	// written by name, this (or nothing at all) clears the item slot
+	private static final String NOTHING_NAME = "nothing";
 
 	private static final String KIT_SUFFIX = "_KIT";
 	private static final String COLOR_SUFFIX = "_COLOR";
@@ -63,8 +68,31 @@ public class Exporter
 	private final Locks locks;
 	private final History history;
 	private final Fallbacks fallbacks;
+	private final ItemSearchIndex itemSearchIndex;
+
+	@Value
+	@VisibleForTesting
+	static class Imports
+	{
+		Map<KitType, Integer> items;
+		Map<KitType, Integer> kits;
+		Map<ColorType, Integer> colors;
+		@Nullable
+		JawIcon icon;
+		Set<KitType> nothings;
+	}
 
 	public void parseImports(List<String> allLines)
+	{
+		Imports imports = parse(allLines);
+		if (!imports.items.isEmpty() || !imports.kits.isEmpty() || !imports.colors.isEmpty())
+		{
+			performImport(imports.items, imports.kits, imports.colors, imports.icon, imports.nothings);
+		}
+	}
+
+	@VisibleForTesting
+	Imports parse(List<String> allLines)
 	{
 		Map<KitType, Integer> itemImports = new HashMap<>();
 		Map<KitType, Integer> kitImports = new HashMap<>();
@@ -78,6 +106,7 @@ public class Exporter
 				continue;
 			}
 			Matcher matcher = PROFILE_PATTERN.matcher(line);
+			Matcher nameMatcher = NAME_PATTERN.matcher(line);
 			if (matcher.matches())
 			{
 				String slotStr = matcher.group(1);
@@ -114,11 +143,28 @@ public class Exporter
 					sendHighlightedMessage("Could not import line: " + line);
 				}
 			}
+			else if (nameMatcher.matches() && itemSlotMatch(nameMatcher.group(1)) != null)
+			{
+				// only items can be named; other non-numeric lines are ignored as before
+				KitType itemSlot = itemSlotMatch(nameMatcher.group(1));
+				String name = nameMatcher.group(2).trim();
+				if (name.isEmpty() || name.equalsIgnoreCase(NOTHING_NAME))
+				{
+					nothings.add(itemSlot);
+					continue;
+				}
+				ItemSearchIndex.Entry entry = itemSearchIndex.findByName(name, itemSlot);
+				if (entry != null)
+				{
+					itemImports.put(itemSlot, entry.getItemId());
+				}
+				else
+				{
+					sendHighlightedMessage("Could not import line: " + line);
+				}
+			}
 		}
-		if (!itemImports.isEmpty() || !kitImports.isEmpty() || !colorImports.isEmpty())
-		{
-			performImport(itemImports, kitImports, colorImports, icon, nothings);
-		}
+		return new Imports(itemImports, kitImports, colorImports, icon, nothings);
 	}
 
 
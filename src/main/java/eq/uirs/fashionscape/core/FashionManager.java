@@ -1,15 +1,26 @@
 package eq.uirs.fashionscape.core;
 
 import com.google.common.collect.ImmutableList;
+import eq.uirs.fashionscape.core.event.ColorLockChanged;
+import eq.uirs.fashionscape.core.event.IconLockChanged;
+import eq.uirs.fashionscape.core.event.ItemsIndexed;
+import eq.uirs.fashionscape.core.event.LockChanged;
 import eq.uirs.fashionscape.core.layer.Layers;
 import eq.uirs.fashionscape.core.layer.Locks;
+import eq.uirs.fashionscape.core.randomizer.Outfit;
 import eq.uirs.fashionscape.core.randomizer.Randomizer;
 import eq.uirs.fashionscape.data.color.ColorType;
 import eq.uirs.fashionscape.data.kit.JawIcon;
 import eq.uirs.fashionscape.remote.RemoteCategory;
 import eq.uirs.fashionscape.remote.RemoteDataHandler;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -22,6 +33,8 @@ import net.runelite.api.PlayerComposition;
 import net.runelite.api.kit.KitType;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
+import net.runelite.client.eventbus.EventBus;
+import net.runelite.client.eventbus.Subscribe;
 
 /**
  * Singleton entry point into fashionscape internals. The "brains" of the plugin.
@@ -41,6 +54,11 @@ public class FashionManager
 		KitType.HANDS, KitType.BOOTS);
 	public static final int ITEM_OFFSET = PlayerComposition.ITEM_OFFSET;
 	public static final int KIT_OFFSET = PlayerComposition.KIT_OFFSET;
+	// outfits generated per batch shuffle, and how many of the best are kept to flip through
+	private static final int BATCH_SIZE = 50;
+	private static final int BATCH_KEEP = 10;
+	// outfits kept ready for the shuffle button, so that it doesn't need to wait for the randomizer
+	private static final int READY_OUTFITS = 2;
 
 	private final Client client;
 	private final ClientThread clientThread;
@@ -57,10 +75,24 @@ public class FashionManager
 
 	private final History history;
 	private final Randomizer randomizer;
+	private final ItemCatalog itemCatalog;
+	private final ItemCatalogCache catalogCache;
 	private final Exclusions exclusions;
+	private final ItemSearchIndex itemSearchIndex;
 	private final ConfigHelper configHelper;
 	private final RemoteDataHandler remote;
 	private final CompositionHelper compositionHelper;
+	private final ScheduledExecutorService executor;
+	private final EventBus eventBus;
+
+	// pre-generated outfits for the shuffle button. only accessed on the client thread
+	private final Deque<Outfit> readyOutfits = new ArrayDeque<>();
+	// best remaining outfits of the last batch shuffle. only accessed on the client thread
+	private final Deque<Outfit> rankedOutfits = new ArrayDeque<>();
+	// incremented whenever generated outfits stop being valid (e.g. locks changed), so pending ones are dropped
+	private final AtomicInteger generatedOutfitsVersion = new AtomicInteger();
+	private boolean generatingReady = false;
+	private boolean generatingBatch = false;
 
 	private boolean receivedDataAsync = false;
 	private String lastKnownRSProfileKey = null;
@@ -95,16 +127,54 @@ public class FashionManager
 
 	private void startUpPostFetch()
 	{
-		clientThread.invokeLater(() -> {
-			if (!exclusions.loadAll())
-			{
-				return false;
-			}
+		clientThread.invokeLater(() -> loadCatalog(() -> {
+			itemSearchIndex.build();
+			// searches made before this point found no items
+			eventBus.post(new ItemsIndexed());
+			executor.execute(randomizer::ensureMemo);
 			configHelper.migrateEquipmentInfo();
 			doPreRefreshCheck();
 			configHelper.loadFromConfig();
 			refreshPlayer();
+			refillReadyOutfits();
+		}));
+	}
+
+	/**
+	 * Restores the catalog and exclusions from disk if they were saved for the same data, otherwise scans for them.
+	 * `whenLoaded` runs on the client thread once both are available, which may be after this returns.
+	 *
+	 * @return false if the client's items aren't ready yet
+	 */
+	private boolean loadCatalog(Runnable whenLoaded)
+	{
+		if (client.getItemCount() == 0)
+		{
+			return false;
+		}
+		ItemCatalogCache.Key key = catalogCache.currentKey();
+		// only a catalog scanned here (after remote data was fetched) is known to match the key
+		boolean scanning = itemCatalog.getItems() == null;
+		ItemCatalogCache.Contents cached = key != null && scanning ? catalogCache.read(key) : null;
+		if (cached != null)
+		{
+			itemCatalog.restore(cached.getItems());
+			exclusions.restore(cached.getItems(), cached.getBad(), cached.getDupes());
+			whenLoaded.run();
 			return true;
+		}
+		if (!itemCatalog.load())
+		{
+			return false;
+		}
+		// runs on the executor, after exclusions are published
+		return exclusions.loadAll(() -> {
+			clientThread.invokeLater(whenLoaded);
+			if (key != null && scanning)
+			{
+				catalogCache.write(key, new ItemCatalogCache.Contents(itemCatalog.getItems(),
+					exclusions.getBadIds(), exclusions.getDupeIds()));
+			}
 		});
 	}
 
@@ -115,6 +185,8 @@ public class FashionManager
 
 	public void onPlayerChanged()
 	{
+		// outfits generated before login (or for another player) have no kits, or kits of the wrong gender
+		discardGeneratedOutfits();
 		doPreRefreshCheck();
 		configHelper.loadFromConfig();
 		refreshPlayer();
@@ -171,10 +243,135 @@ public class FashionManager
 		locks.toggleIcon();
 	}
 
+	/**
+	 * Randomizes unlocked slots, using an outfit generated ahead of time if one is ready.
+	 * Should be called from the client thread.
+	 */
 	public void shuffle()
 	{
-		history.append(randomizer.shuffle());
+		Outfit ready = readyOutfits.poll();
+		Diff diff = ready != null && randomizer.isAllowed(ready) ? randomizer.apply(ready) : randomizer.shuffle();
+		history.append(diff);
 		refreshPlayer();
+		refillReadyOutfits();
+	}
+
+	// generates outfits for the shuffle button in the background, one at a time, until enough are ready
+	private void refillReadyOutfits()
+	{
+		// without a gender (e.g. at the login screen), outfits would have no kits and ignore gendered item colours
+		if (generatingReady || readyOutfits.size() >= READY_OUTFITS || layers.getGender() == null)
+		{
+			return;
+		}
+		generatingReady = true;
+		int version = generatedOutfitsVersion.get();
+		// locks and the outfit are only safe to read here, on the client thread
+		Randomizer.Snapshot snapshot = randomizer.snapshot();
+		executor.execute(() -> {
+			Outfit outfit = null;
+			try
+			{
+				outfit = randomizer.generate(snapshot);
+			}
+			catch (Exception e)
+			{
+				log.warn("failed to generate outfit", e);
+			}
+			Outfit generated = outfit;
+			clientThread.invokeLater(() -> {
+				generatingReady = false;
+				if (generated == null)
+				{
+					return;
+				}
+				if (version == generatedOutfitsVersion.get())
+				{
+					readyOutfits.add(generated);
+				}
+				refillReadyOutfits();
+			});
+		});
+	}
+
+	/**
+	 * Applies the next best outfit from a batch shuffle, generating a new batch in the background if none remain.
+	 * Should be called from the client thread. `onApplied` is run on the client thread once an outfit is applied.
+	 */
+	public void shuffleRanked(Runnable onApplied)
+	{
+		Outfit next = rankedOutfits.poll();
+		while (next != null && !randomizer.isAllowed(next))
+		{
+			next = rankedOutfits.poll();
+		}
+		if (next != null)
+		{
+			history.append(randomizer.apply(next));
+			refreshPlayer();
+			onApplied.run();
+			return;
+		}
+		if (generatingBatch)
+		{
+			return;
+		}
+		generatingBatch = true;
+		int version = generatedOutfitsVersion.get();
+		Randomizer.Snapshot snapshot = randomizer.snapshot();
+		// a batch takes a while, so it runs on the common pool to keep the plugin's executor free for other work
+		ForkJoinPool.commonPool().execute(() -> {
+			List<Outfit> outfits;
+			try
+			{
+				outfits = randomizer.shuffleBatch(snapshot, BATCH_SIZE, BATCH_KEEP);
+			}
+			catch (Exception e)
+			{
+				log.warn("failed to generate outfits", e);
+				outfits = Collections.emptyList();
+			}
+			List<Outfit> batch = outfits;
+			clientThread.invokeLater(() -> {
+				generatingBatch = false;
+				if (version == generatedOutfitsVersion.get() && !batch.isEmpty())
+				{
+					rankedOutfits.addAll(batch);
+					shuffleRanked(onApplied);
+				}
+			});
+		});
+	}
+
+	/**
+	 * Drops any outfits generated ahead of time, since they were generated for outdated locks or config
+	 */
+	public void discardGeneratedOutfits()
+	{
+		generatedOutfitsVersion.incrementAndGet();
+		clientThread.invokeLater(() -> {
+			readyOutfits.clear();
+			rankedOutfits.clear();
+			refillReadyOutfits();
+		});
+	}
+
+	@Subscribe
+	public void onLockChanged(LockChanged e)
+	{
+		discardGeneratedOutfits();
+	}
+
+	@Subscribe
+	public void onColorLockChanged(ColorLockChanged e)
+	{
+		discardGeneratedOutfits();
+	}
+
+	@Subscribe
+	public void onIconLockChanged(IconLockChanged e)
+	{
+		discardGeneratedOutfits();
 	}
 
 	public void importSelf()
@@ -262,7 +459,12 @@ public class FashionManager
 			return;
 		}
 		PlayerComposition composition = compositionHelper.getLocal();
+		Integer oldGender = layers.getGender();
 		layers.deriveNonEquipment(composition, player.getIdlePoseAnimation());
+		if (!Objects.equals(oldGender, layers.getGender()))
+		{
+			discardGeneratedOutfits();
+		}
 		String profileKey = configManager.getRSProfileKey();
 		if (!Objects.equals(lastKnownRSProfileKey, profileKey))
 		{
@@ -0,0 +1,106 @@
+package eq.uirs.fashionscape.core;
+
+import eq.uirs.fashionscape.core.utils.AhoCorasick;
+import eq.uirs.fashionscape.data.anim.AnimationData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * All idle animation rules, compiled so that an item can be checked against every rule at once.
+ * Like checking the rules one by one, the first (in order) that matches an item decides its animation.
+ * Immutable once built, so it can be shared between threads.
+ */
+class IdleAnimationMatcher
+{
+	private final int[] animIds;
+	// values are positions of the first rule mentioning the key
+	private final Map<Integer, Integer> byItemId = new HashMap<>();
+	private final Map<String, Integer> byExactName = new HashMap<>();
+	private final AhoCorasick contains;
+	// rule position for each needle in `contains`
+	private final int[] containsRules;
+	// in rule order
+	private final List<Pattern> regexes = new ArrayList<>();
+	private final List<Integer> regexRules = new ArrayList<>();
+
+	IdleAnimationMatcher(List<AnimationData> rules)
+	{
+		animIds = new int[rules.size()];
+		List<String> needles = new ArrayList<>();
+		List<Integer> needleRules = new ArrayList<>();
+		for (int i = 0; i < rules.size(); i++)
+		{
+			AnimationData rule = rules.get(i);
+			animIds[i] = rule.animId;
+			if (rule.itemIds != null)
+			{
+				for (Integer itemId : rule.itemIds)
+				{
+					byItemId.putIfAbsent(itemId, i);
+				}
+			}
+			if (rule.exactMatches != null)
+			{
+				for (String name : rule.exactMatches)
+				{
+					byExactName.putIfAbsent(name, i);
+				}
+			}
+			if (rule.containsMatches != null)
+			{
+				for (String needle : rule.containsMatches)
+				{
+					needles.add(needle);
+					needleRules.add(i);
+				}
+			}
+			if (rule.regexMatches != null)
+			{
+				for (String regex : rule.regexMatches)
+				{
+					regexes.add(Pattern.compile(regex));
+					regexRules.add(i);
+				}
+			}
+		}
+		contains = new AhoCorasick(needles);
+		containsRules = needleRules.stream().mapToInt(i -> i).toArray();
+	}
+
+	/**
+	 * @param itemName lowercase name of the item
+	 * @return the idle animation of the first rule matching the item, or null if none do
+	 */
+	@Nullable
+	Integer find(int itemId, String itemName)
+	{
+		int best = Integer.MAX_VALUE;
+		Integer rule = byItemId.get(itemId);
+		if (rule != null)
+		{
+			best = rule;
+		}
+		rule = byExactName.get(itemName);
+		if (rule != null)
+		{
+			best = Math.min(best, rule);
+		}
+		for (int needle : contains.findAll(itemName))
+		{
+			best = Math.min(best, containsRules[needle]);
+		}
+		// regexes are the slowest check, so only try those that could beat the best match so far
+		for (int i = 0; i < regexes.size() && regexRules.get(i) < best; i++)
+		{
+			if (regexes.get(i).matcher(itemName).find())
+			{
+				best = regexRules.get(i);
+			}
+		}
+		return best == Integer.MAX_VALUE ? null : animIds[best];
+	}
+}
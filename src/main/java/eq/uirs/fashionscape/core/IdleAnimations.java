@@ -1,18 +1,21 @@
 package eq.uirs.fashionscape.core;
 
-import eq.uirs.fashionscape.data.anim.AnimationData;
+import com.google.common.collect.ImmutableMap;
+import eq.uirs.fashionscape.remote.RemoteCategory;
 import eq.uirs.fashionscape.remote.RemoteData;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.ItemComposition;
 
 /**
  * Builds mappings of weapon ids to idle pose animation ids.
@@ -27,7 +30,19 @@ public class IdleAnimations
 
 	private final ScheduledExecutorService executorService;
 
-	private final Map<Integer, Integer> itemIdToAnim = new HashMap<>();
+	// replaced as a whole once every weapon is resolved, so readers never see a partial table
+	private volatile Map<Integer, Integer> itemIdToAnim = ImmutableMap.of();
+	// identifies the latest call to resolveAll, so that an older one finishing late can't replace its results
+	private final AtomicInteger generation = new AtomicInteger();
+	private CompiledRules compiled;
+
+	@Value
+	private static class CompiledRules
+	{
+		// of the anims json the rules were compiled from
+		Long checksum;
+		IdleAnimationMatcher matcher;
+	}
 
 	@Nullable
 	public Integer get(Integer itemId)
@@ -36,47 +51,52 @@ public class IdleAnimations
 	}
 
 	/**
-	 * Queues a (weapon-slot) item to determine its idle anim id.
-	 * Since this process can be quite slow (many regex/string matches), it's done in the background.
-	 * This should only be called from the client thread, after the anims json has been fetched.
+	 * Determines the idle anim ids of all (weapon-slot) items, replacing any previous results once finished.
+	 * Since this process can be slow (the rules include regexes), it's done in the background, with the items
+	 * split across the common fork-join pool rather than queued on the plugin's executor one by one.
+	 * This should only be called after the anims json has been fetched.
 	 */
-	public void queue(ItemComposition composition)
-	{
-		int itemId = composition.getId();
-		String itemName = composition.getMembersName().toLowerCase();
-		executorService.execute(() -> findAnimation(itemId, itemName));
-	}
-
-	private void findAnimation(int itemId, String itemName)
+	public void resolveAll(List<ItemCatalog.Item> weapons)
 	{
-		RemoteData.ANIM_DATA.stream()
-			.filter(info -> isMatch(info, itemId, itemName))
-			.findFirst()
-			.ifPresent(info -> itemIdToAnim.put(itemId, info.animId));
+		int current = generation.incrementAndGet();
+		executorService.execute(() -> {
+			Integer[] animIds = new Integer[weapons.size()];
+			try
+			{
+				IdleAnimationMatcher matcher = matcher();
+				IntStream.range(0, animIds.length)
+					.parallel()
+					.forEach(i -> animIds[i] = matcher.find(weapons.get(i).getItemId(),
+						weapons.get(i).getName().toLowerCase()));
+			}
+			catch (Exception e)
+			{
+				log.warn("failed to resolve idle animations", e);
+				return;
+			}
+			ImmutableMap.Builder<Integer, Integer> result = ImmutableMap.builder();
+			for (int i = 0; i < animIds.length; i++)
+			{
+				if (animIds[i] != null)
+				{
+					result.put(weapons.get(i).getItemId(), animIds[i]);
+				}
+			}
+			if (generation.get() == current)
+			{
+				itemIdToAnim = result.build();
+			}
+		});
 	}
 
-	private boolean isMatch(AnimationData info, int itemId, String itemName)
+	// compiled once per version of the anims json, rather than per item
+	private synchronized IdleAnimationMatcher matcher()
 	{
-		if (info.itemIds != null && info.itemIds.contains(itemId))
-		{
-			return true;
-		}
-		if (info.exactMatches != null && info.exactMatches.contains(itemName))
-		{
-			return true;
-		}
-		List<String> containsMatches = info.containsMatches;
-		if (containsMatches != null && containsMatches.stream().anyMatch(itemName::contains))
-		{
-			return true;
-		}
-		List<String> regexMatches = info.regexMatches;
-		if (regexMatches != null)
+		Long checksum = RemoteData.CHECKSUMS.get(RemoteCategory.ANIMATION);
+		if (compiled == null || !Objects.equals(compiled.checksum, checksum))
 		{
-			return regexMatches.stream()
-				.map(Pattern::compile)
-				.anyMatch(p -> p.matcher(itemName).find());
+			compiled = new CompiledRules(checksum, new IdleAnimationMatcher(new ArrayList<>(RemoteData.ANIM_DATA)));
 		}
-		return false;
+		return compiled.matcher;
 	}
 }
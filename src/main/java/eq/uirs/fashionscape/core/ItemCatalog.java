@@ -0,0 +1,179 @@
+package eq.uirs.fashionscape.core;
+
+import eq.uirs.fashionscape.core.utils.ItemSlotUtil;
+import eq.uirs.fashionscape.remote.RemoteCategory;
+import eq.uirs.fashionscape.remote.RemoteDataHandler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.kit.KitType;
+import net.runelite.client.game.ItemManager;
+
+/**
+ * Every canonical, equippable item, found in one pass over the client's item table.
+ * Exclusions, the search index and the randomizer all read from this instead of each fetching compositions.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = {@Inject})
+public class ItemCatalog
+{
+	private final Client client;
+	private final ItemManager itemManager;
+	private final RemoteDataHandler remote;
+
+	@Value
+	public static class Item
+	{
+		int itemId;
+		String name;
+		KitType slot;
+		// slots hidden while this item is worn, as a bitmask of KitType ordinals
+		int hiddenMask;
+		boolean members;
+		int modelId;
+		// items that look the same and have the same name (ignoring variant suffixes) share this
+		long lookHash;
+	}
+
+	private static final Pattern PAREN_REPLACE = Pattern.compile("\\(.*\\)");
+	private static final Pattern NON_LETTERS = Pattern.compile("[^A-Za-z]+");
+
+	// ordered by item id. null until loaded
+	private volatile List<Item> items;
+
+	/**
+	 * Scans the client's items, if that hasn't been done yet. This should only be called from the client thread.
+	 * Remote data determines item slots, so nothing is scanned until it has been fetched; otherwise the wrong slots
+	 * would be kept for as long as the plugin runs.
+	 *
+	 * @return false if client doesn't have items populated or remote data hasn't been fetched
+	 */
+	public boolean load()
+	{
+		if (items != null)
+		{
+			return true;
+		}
+		if (!remote.hasSucceeded(RemoteCategory.SLOT) || !remote.hasSucceeded(RemoteCategory.MISC))
+		{
+			return false;
+		}
+		int itemCount = client.getItemCount();
+		// item count will be 0 if cache is not ready yet
+		if (itemCount == 0)
+		{
+			return false;
+		}
+		List<Item> result = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++)
+		{
+			try
+			{
+				// can skip banknote/placeholder items since the canonical version will come up eventually
+				if (itemManager.canonicalize(i) != i)
+				{
+					continue;
+				}
+				KitType slot = ItemSlotUtil.getSlot(i, itemManager);
+				if (slot == null)
+				{
+					continue;
+				}
+				ItemComposition composition = itemManager.getItemComposition(i);
+				SlotInfo slotInfo = SlotInfo.lookUp(i + FashionManager.ITEM_OFFSET, slot);
+				int hiddenMask = 0;
+				for (KitType hidden : slotInfo.getHidden())
+				{
+					hiddenMask |= 1 << hidden.ordinal();
+				}
+				String name = composition.getMembersName();
+				int modelId = composition.getInventoryModel();
+				long lookHash = lookHash(modelId, composition.getColorToReplaceWith(),
+					composition.getTextureToReplaceWith(), name);
+				result.add(new Item(i, name, slot, hiddenMask, composition.isMembers(), modelId, lookHash));
+			}
+			catch (Exception ignored)
+			{
+			}
+		}
+		items = Collections.unmodifiableList(result);
+		log.debug("cataloged {} items", result.size());
+		return true;
+	}
+
+	/**
+	 * Uses items from a previous `load` for the same game cache (see ItemCatalogCache)
+	 */
+	void restore(List<Item> items)
+	{
+		this.items = items;
+	}
+
+	/**
+	 * Safe to call from any thread.
+	 *
+	 * @return null if not loaded yet
+	 */
+	@Nullable
+	public List<Item> getItems()
+	{
+		return items;
+	}
+
+	/**
+	 * 64-bit hash of everything that determines how an item looks in-game, plus its name without variant suffixes.
+	 * Items with equal hashes are treated as duplicates; with this many bits, unrelated items colliding is
+	 * vanishingly unlikely.
+	 */
+	private static long lookHash(int modelId, @Nullable short[] colorsToReplace,
+		@Nullable short[] texturesToReplace, String name)
+	{
+		String strippedName = NON_LETTERS.matcher(PAREN_REPLACE.matcher(name.toLowerCase()).replaceAll(""))
+			.replaceAll("");
+		long h = mix(modelId);
+		h = mixShorts(h, colorsToReplace);
+		h = mixShorts(h, texturesToReplace);
+		h = mix(h + strippedName.length());
+		for (int i = 0; i < strippedName.length(); i++)
+		{
+			h = mix(h + strippedName.charAt(i));
+		}
+		return h;
+	}
+
+	private static long mixShorts(long h, @Nullable short[] values)
+	{
+		if (values == null)
+		{
+			// distinct from an empty array
+			return mix(h - 1);
+		}
+		h = mix(h + values.length);
+		for (short value : values)
+		{
+			h = mix(h + value);
+		}
+		return h;
+	}
+
+	// murmur3's 64-bit finalizer
+	private static long mix(long h)
+	{
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
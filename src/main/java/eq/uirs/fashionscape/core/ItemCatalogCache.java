@@ -0,0 +1,211 @@
+package eq.uirs.fashionscape.core;
+
+import eq.uirs.fashionscape.remote.RemoteCategory;
+import eq.uirs.fashionscape.remote.RemoteData;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.kit.KitType;
+import net.runelite.client.RuneLite;
+
+/**
+ * Saves the item catalog and the exclusions derived from it, so that later starts can skip scanning every item.
+ * The file is only used while the game cache and remote data are unchanged since it was written.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = {@Inject})
+public class ItemCatalogCache
+{
+	static final File CACHE_FILE = new File(new File(RuneLite.RUNELITE_DIR, "fashionscape"), "items.bin");
+
+	private static final int MAGIC = 0x46534943; // "FSIC"
+	// bump whenever the layout below changes
+	private static final int FORMAT_VERSION = 2;
+	// bytes taken by an item with an empty name, used to reject impossible counts
+	private static final int MIN_ITEM_BYTES = 26;
+
+	private final Client client;
+
+	/**
+	 * Everything the saved contents were derived from
+	 */
+	@Value
+	public static class Key
+	{
+		int itemCount;
+		int revision;
+		long slotChecksum;
+		long miscChecksum;
+	}
+
+	@Value
+	public static class Contents
+	{
+		List<ItemCatalog.Item> items;
+		int[] bad;
+		int[] dupes;
+	}
+
+	/**
+	 * Describes the current game cache and remote data. Should be called from the client thread.
+	 *
+	 * @return null if items or remote data aren't loaded, in which case nothing should be cached
+	 */
+	@Nullable
+	public Key currentKey()
+	{
+		Long slotChecksum = RemoteData.CHECKSUMS.get(RemoteCategory.SLOT);
+		Long miscChecksum = RemoteData.CHECKSUMS.get(RemoteCategory.MISC);
+		int itemCount = client.getItemCount();
+		if (itemCount == 0 || slotChecksum == null || miscChecksum == null)
+		{
+			return null;
+		}
+		return new Key(itemCount, client.getRevision(), slotChecksum, miscChecksum);
+	}
+
+	/**
+	 * @return null if nothing was saved for this key, or the file can't be read
+	 */
+	@Nullable
+	public Contents read(Key key)
+	{
+		if (!CACHE_FILE.isFile())
+		{
+			return null;
+		}
+		try
+		{
+			// read onto the heap rather than mapped, since a mapping would keep the file locked on Windows
+			// (until garbage collected), and the next write couldn't replace it
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(CACHE_FILE.toPath()));
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || !key.equals(readKey(buffer)))
+			{
+				return null;
+			}
+			KitType[] slots = KitType.values();
+			int count = readLength(buffer, MIN_ITEM_BYTES);
+			List<ItemCatalog.Item> items = new ArrayList<>(count);
+			for (int i = 0; i < count; i++)
+			{
+				int itemId = buffer.getInt();
+				KitType slot = slots[buffer.get()];
+				int hiddenMask = buffer.getInt();
+				boolean members = buffer.get() != 0;
+				int modelId = buffer.getInt();
+				long lookHash = buffer.getLong();
+				byte[] name = new byte[readLength(buffer, 1)];
+				buffer.get(name);
+				items.add(new ItemCatalog.Item(itemId, new String(name, StandardCharsets.UTF_8), slot, hiddenMask,
+					members, modelId, lookHash));
+			}
+			int[] bad = readInts(buffer);
+			int[] dupes = readInts(buffer);
+			log.debug("read {} cataloged items from disk", count);
+			return new Contents(Collections.unmodifiableList(items), bad, dupes);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			// a partial or corrupt file is treated like a missing one, and gets replaced after the next scan
+			log.debug("could not read item catalog cache", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Replaces the saved contents. Does file I/O, so this should be called from a background thread.
+	 */
+	public void write(Key key, Contents contents)
+	{
+		File tmp = new File(CACHE_FILE.getParentFile(), CACHE_FILE.getName() + ".tmp");
+		try
+		{
+			Files.createDirectories(CACHE_FILE.getParentFile().toPath());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(key.itemCount);
+				out.writeInt(key.revision);
+				out.writeLong(key.slotChecksum);
+				out.writeLong(key.miscChecksum);
+				out.writeInt(contents.items.size());
+				for (ItemCatalog.Item item : contents.items)
+				{
+					out.writeInt(item.getItemId());
+					out.writeByte(item.getSlot().ordinal());
+					out.writeInt(item.getHiddenMask());
+					out.writeBoolean(item.isMembers());
+					out.writeInt(item.getModelId());
+					out.writeLong(item.getLookHash());
+					byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+					out.writeInt(name.length);
+					out.write(name);
+				}
+				writeInts(out, contents.bad);
+				writeInts(out, contents.dupes);
+			}
+			// readers never see a partially written file
+			Files.move(tmp.toPath(), CACHE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			log.warn("could not write item catalog cache", e);
+			tmp.delete();
+		}
+	}
+
+	private static Key readKey(ByteBuffer buffer)
+	{
+		return new Key(buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong());
+	}
+
+	/**
+	 * Reads a count of elements that follow, checking that the rest of the file could actually hold them,
+	 * so that a corrupt count can't cause a huge allocation
+	 */
+	private static int readLength(ByteBuffer buffer, int minElementBytes) throws IOException
+	{
+		int length = buffer.getInt();
+		if (length < 0 || (long) length * minElementBytes > buffer.remaining())
+		{
+			throw new IOException("invalid length " + length + " at position " + (buffer.position() - 4));
+		}
+		return length;
+	}
+
+	private static int[] readInts(ByteBuffer buffer) throws IOException
+	{
+		int[] result = new int[readLength(buffer, 4)];
+		buffer.asIntBuffer().get(result);
+		buffer.position(buffer.position() + 4 * result.length);
+		return result;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException
+	{
+		out.writeInt(values.length);
+		for (int value : values)
+		{
+			out.writeInt(value);
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package eq.uirs.fashionscape.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import eq.uirs.fashionscape.FashionscapeConfig;
+import eq.uirs.fashionscape.colors.ColorIndex;
+import eq.uirs.fashionscape.colors.GenderItemColors;
+import eq.uirs.fashionscape.colors.ItemColors;
+import eq.uirs.fashionscape.core.utils.TrigramIndex;
+import eq.uirs.fashionscape.remote.RemoteData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.kit.KitType;
+
+/**
+ * In-memory lookup of every item in the catalog, built once so that searches don't need to walk the
+ * client's item table (and fetch compositions) on every query.
+ * Names are indexed by trigram, so substring lookups only visit items that can possibly match.
+ * Dominant colours are indexed per slot (and gender), so the items closest to a colour can be found directly.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = {@Inject})
+public class ItemSearchIndex
+{
+	private final ItemCatalog itemCatalog;
+	private final Exclusions exclusions;
+	private final FashionscapeConfig config;
+
+	@Value
+	public static class Entry
+	{
+		int itemId;
+		String name;
+		// lowercase version of name, used for matching queries
+		String key;
+		KitType slot;
+		boolean members;
+		// glitched or duplicate item (ignores members config)
+		boolean excluded;
+	}
+
+	@Value
+	public static class ColorMatch
+	{
+		Entry entry;
+		// scaled from 0 (identical) to 1 (complete mismatch)
+		double distance;
+	}
+
+	@Value
+	private static class Contents
+	{
+		// ordered by item id
+		List<Entry> entries;
+		// positions correspond to entries
+		TrigramIndex names;
+		// keys are positions in entries. first map is for gender 0, second for gender 1
+		List<Map<KitType, ColorIndex>> colorsByGender;
+	}
+
+	private volatile Contents contents = new Contents(Collections.emptyList(),
+		new TrigramIndex(Collections.emptyList()), ImmutableList.of(Collections.emptyMap(), Collections.emptyMap()));
+
+	public boolean isBuilt()
+	{
+		return !contents.entries.isEmpty();
+	}
+
+	/**
+	 * Populates the index from the item catalog. This should only be called after the catalog and exclusions
+	 * have loaded (see FashionManager).
+	 *
+	 * @return false if the catalog hasn't loaded yet
+	 */
+	public boolean build()
+	{
+		List<ItemCatalog.Item> items = itemCatalog.getItems();
+		if (items == null)
+		{
+			return false;
+		}
+		List<Entry> result = new ArrayList<>();
+		for (ItemCatalog.Item item : items)
+		{
+			String name = item.getName();
+			result.add(new Entry(item.getItemId(), name, name.toLowerCase(), item.getSlot(), item.isMembers(),
+				exclusions.isBadOrDupe(item.getItemId())));
+		}
+		List<String> keys = result.stream()
+			.map(Entry::getKey)
+			.collect(Collectors.toList());
+		List<Map<KitType, ColorIndex>> colorsByGender = ImmutableList.of(buildColors(result, 0),
+			buildColors(result, 1));
+		contents = new Contents(Collections.unmodifiableList(result), new TrigramIndex(keys), colorsByGender);
+		log.debug("indexed {} items", result.size());
+		return true;
+	}
+
+	private Map<KitType, ColorIndex> buildColors(List<Entry> entries, int gender)
+	{
+		Map<KitType, List<Integer>> positions = new EnumMap<>(KitType.class);
+		Map<KitType, List<ItemColors>> colors = new EnumMap<>(KitType.class);
+		for (int i = 0; i < entries.size(); i++)
+		{
+			Entry entry = entries.get(i);
+			GenderItemColors genderColors = RemoteData.ITEM_ID_TO_COLORS.get(entry.itemId);
+			ItemColors itemColors = genderColors != null ? genderColors.forGender(gender) : null;
+			if (entry.excluded || itemColors == null || itemColors.size() == 0)
+			{
+				continue;
+			}
+			positions.computeIfAbsent(entry.slot, s -> new ArrayList<>()).add(i);
+			colors.computeIfAbsent(entry.slot, s -> new ArrayList<>()).add(itemColors);
+		}
+		Map<KitType, ColorIndex> result = new EnumMap<>(KitType.class);
+		for (KitType slot : positions.keySet())
+		{
+			result.put(slot, new ColorIndex(Ints.toArray(positions.get(slot)), colors.get(slot)));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds items whose names contain the (lowercase) query, or whose id equals the query if it's numeric.
+	 * Searching by id skips all exclusions, so that any item can be tried on this way.
+	 * Results are ordered by item id.
+	 */
+	public List<Entry> search(String query, @Nullable Predicate<Entry> filter)
+	{
+		Contents current = contents;
+		Integer queryId = Ints.tryParse(query);
+		boolean excludeMembers = config.excludeMembersItems();
+		List<Entry> result = new ArrayList<>();
+		Entry idMatch = queryId != null ? byId(current.entries, queryId) : null;
+		for (int i : current.names.find(query))
+		{
+			Entry entry = current.entries.get(i);
+			if (entry == idMatch)
+			{
+				continue;
+			}
+			// the name of the item (can't be "null") must match the input string
+			boolean allowed = queryId != null || !entry.excluded && !(excludeMembers && entry.members);
+			if (allowed && isNamed(entry) && (filter == null || filter.test(entry)))
+			{
+				result.add(entry);
+			}
+		}
+		if (idMatch != null && (filter == null || filter.test(idMatch)))
+		{
+			// keep id ordering
+			int insertAt = 0;
+			while (insertAt < result.size() && result.get(insertAt).itemId < idMatch.itemId)
+			{
+				insertAt++;
+			}
+			result.add(insertAt, idMatch);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds up to `count` items whose dominant colours are closest to the given rgb, nearest first.
+	 * Without a slot, the closest items across all slots are returned. Exclusions apply as with name searches.
+	 */
+	public List<ColorMatch> searchByColor(int rgb, @Nullable KitType slot, @Nullable Integer gender, int count,
+										  @Nullable Predicate<Entry> filter)
+	{
+		Contents current = contents;
+		boolean excludeMembers = config.excludeMembersItems();
+		Map<KitType, ColorIndex> indexes = current.colorsByGender.get(gender != null && gender == 1 ? 1 : 0);
+		List<ColorMatch> result = new ArrayList<>();
+		for (Map.Entry<KitType, ColorIndex> e : indexes.entrySet())
+		{
+			if (slot != null && e.getKey() != slot)
+			{
+				continue;
+			}
+			IntPredicate accept = i -> {
+				Entry entry = current.entries.get(i);
+				return !(excludeMembers && entry.members) && isNamed(entry) && (filter == null || filter.test(entry));
+			};
+			for (ColorIndex.Match match : e.getValue().nearest(rgb, count, accept))
+			{
+				result.add(new ColorMatch(current.entries.get(match.getKey()), match.getDistance()));
+			}
+		}
+		result.sort(Comparator.comparingDouble(ColorMatch::getDistance)
+			.thenComparingInt(m -> m.getEntry().getItemId()));
+		return result.size() > count ? new ArrayList<>(result.subList(0, count)) : result;
+	}
+
+	/**
+	 * Finds the item whose name exactly matches the given one (case-insensitive), preferring non-excluded items.
+	 * Unnamed items are skipped like they are in `search`, so that "null" doesn't resolve to a placeholder.
+	 */
+	@Nullable
+	public Entry findByName(String name, @Nullable KitType slot)
+	{
+		Contents current = contents;
+		String key = name.trim().toLowerCase();
+		Entry fallback = null;
+		for (int i : current.names.find(key))
+		{
+			Entry entry = current.entries.get(i);
+			if (!entry.key.equals(key) || !isNamed(entry) || slot != null && entry.slot != slot)
+			{
+				continue;
+			}
+			if (!entry.excluded)
+			{
+				return entry;
+			}
+			if (fallback == null)
+			{
+				fallback = entry;
+			}
+		}
+		return fallback;
+	}
+
+	@Nullable
+	private Entry byId(List<Entry> entries, int itemId)
+	{
+		int low = 0;
+		int high = entries.size() - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int midId = entries.get(mid).itemId;
+			if (midId < itemId)
+			{
+				low = mid + 1;
+			}
+			else if (midId > itemId)
+			{
+				high = mid - 1;
+			}
+			else
+			{
+				return entries.get(mid);
+			}
+		}
+		return null;
+	}
+
+	private boolean isNamed(Entry entry)
+	{
+		return !entry.key.equals("null");
+	}
+}
@@ -0,0 +1,6 @@
+package eq.uirs.fashionscape.core.event;
+
+// item catalog and search index were (re)built from fetched remote data
+public class ItemsIndexed
+{
+}
@@ -1,12 +1,13 @@
 package eq.uirs.fashionscape.core.layer;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import eq.uirs.fashionscape.core.LockStatus;
 import eq.uirs.fashionscape.core.SlotInfo;
 import eq.uirs.fashionscape.core.event.ColorLockChanged;
 import eq.uirs.fashionscape.core.event.IconLockChanged;
 import eq.uirs.fashionscape.core.event.LockChanged;
-import eq.uirs.fashionscape.core.model.Items;
 import eq.uirs.fashionscape.data.color.ColorType;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -23,6 +24,7 @@ import javax.inject.Singleton;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.kit.KitType;
 import net.runelite.client.eventbus.EventBus;
@@ -43,6 +45,43 @@ public class Locks
 	@Getter
 	private boolean icon = false;
 
+	/**
+	 * Immutable copy of the locks, along with the virtual items they're checked against,
+	 * so that they can be read off the client thread
+	 */
+	@Value
+	public static class Snapshot
+	{
+		ImmutableMap<KitType, LockStatus> slots;
+		ImmutableSet<ColorType> colors;
+		boolean icon;
+		ImmutableMap<KitType, SlotInfo> items;
+
+		public boolean contains(KitType slot)
+		{
+			return slots.containsKey(slot);
+		}
+
+		public boolean getColor(ColorType type)
+		{
+			return colors.contains(type);
+		}
+
+		public boolean isAllowed(KitType slot, @Nullable SlotInfo info)
+		{
+			return conflictingSlots(slots, items, slot, info).isEmpty();
+		}
+	}
+
+	/**
+	 * Should be called from the client thread
+	 */
+	public Snapshot snapshot()
+	{
+		return new Snapshot(ImmutableMap.copyOf(slots), ImmutableSet.copyOf(colors), icon,
+			layers.getVirtualModels().getItems().getAll());
+	}
+
 	@Nullable
 	public LockStatus get(KitType slot)
 	{
@@ -140,9 +179,14 @@ public class Locks
 	 */
 	@Nonnull
 	public Set<KitType> conflictingSlots(KitType slot, @Nullable SlotInfo info)
+	{
+		return conflictingSlots(slots, layers.getVirtualModels().getItems().getAll(), slot, info);
+	}
+
+	private static Set<KitType> conflictingSlots(Map<KitType, LockStatus> slots, Map<KitType, SlotInfo> items,
+												 KitType slot, @Nullable SlotInfo info)
 	{
 		Set<KitType> conflicts = new HashSet<>();
-		Items items = layers.getVirtualModels().getItems();
 		SlotInfo existing = items.get(slot);
 		// 1. is the slot locked?
 		LockStatus status = slots.get(slot);
@@ -158,8 +202,8 @@ public class Locks
 		// 2. could a locked item in another slot be forcibly hiding this slot, preventing any change?
 		// e.g., if locked on a full helm item, can't change hair/jaw
 		// note that placing "nothing" in this example would still not be allowable
-		items.getAll().values().stream()
-			.filter(s -> s.getSlot() != slot && contains(s.getSlot()) && s.hides(slot))
+		items.values().stream()
+			.filter(s -> s.getSlot() != slot && slots.containsKey(s.getSlot()) && s.hides(slot))
 			.map(SlotInfo::getSlot)
 			.forEach(conflicts::add);
 		// 3. will this change hide or un-hide any other locked slots as a side effect?
@@ -172,13 +216,13 @@ public class Locks
 		Set<KitType> hiddenLockedOutgoing = new HashSet<>(Sets.intersection(outHidden, locked));
 		// find all unlocked items which the incoming item hides
 		List<SlotInfo> outIncHides = incHidden.stream()
-			.filter(s -> !contains(s) && items.containsKey(s))
+			.filter(s -> !slots.containsKey(s) && items.containsKey(s))
 			.map(items::get)
 			.collect(Collectors.toList());
 		// find all unlocked items that either hide incoming slot or share hidden slots with incoming item
 		// note: sharing hidden slots is conflicting because these items often visually occupy the slots they hide
-		List<SlotInfo> outHidesInc = items.getAll().values().stream()
-			.filter(i -> !contains(i.getSlot()) &&
+		List<SlotInfo> outHidesInc = items.values().stream()
+			.filter(i -> !slots.containsKey(i.getSlot()) &&
 				(i.hides(slot) || !Sets.intersection(i.getHidden(), incHidden).isEmpty()))
 			.collect(Collectors.toList());
 		// all slots hidden+locked by these items are added to "outgoing" set
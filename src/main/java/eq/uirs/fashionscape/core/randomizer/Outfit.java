@@ -0,0 +1,30 @@
+package eq.uirs.fashionscape.core.randomizer;
+
+import eq.uirs.fashionscape.core.SlotInfo;
+import eq.uirs.fashionscape.data.color.ColorType;
+import eq.uirs.fashionscape.data.color.Colorable;
+import eq.uirs.fashionscape.data.kit.JawIcon;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+import lombok.Value;
+
+/**
+ * A randomized look that hasn't been applied to the player yet
+ */
+@Value
+public class Outfit
+{
+	List<SlotInfo> items;
+	List<SlotInfo> kits;
+	@Nullable
+	JawIcon icon;
+	Map<ColorType, Colorable> colors;
+	// how well the randomized parts match each other and the locked parts (higher is better, 0 if unscored)
+	double cohesion;
+
+	Outfit withCohesion(double cohesion)
+	{
+		return new Outfit(items, kits, icon, colors, cohesion);
+	}
+}
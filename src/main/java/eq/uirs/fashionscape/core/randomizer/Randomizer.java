@@ -1,16 +1,19 @@
 package eq.uirs.fashionscape.core.randomizer;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
 import eq.uirs.fashionscape.FashionscapeConfig;
 import eq.uirs.fashionscape.colors.ColorScorer;
+import eq.uirs.fashionscape.colors.PlayerColors;
 import eq.uirs.fashionscape.core.Diff;
 import eq.uirs.fashionscape.core.Exclusions;
 import eq.uirs.fashionscape.core.FashionManager;
+import eq.uirs.fashionscape.core.ItemCatalog;
+import eq.uirs.fashionscape.core.ItemSearchIndex;
 import eq.uirs.fashionscape.core.SlotInfo;
 import eq.uirs.fashionscape.core.layer.Layers;
 import eq.uirs.fashionscape.core.layer.Locks;
 import eq.uirs.fashionscape.core.model.ModelInfo;
-import eq.uirs.fashionscape.core.utils.ItemSlotUtil;
 import eq.uirs.fashionscape.core.utils.KitUtil;
 import eq.uirs.fashionscape.core.utils.ListUtil;
 import eq.uirs.fashionscape.data.color.ColorType;
@@ -19,40 +22,105 @@ import eq.uirs.fashionscape.data.kit.JawIcon;
 import eq.uirs.fashionscape.data.kit.JawKit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.Client;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.kit.KitType;
-import net.runelite.client.game.ItemManager;
 
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = {@Inject})
 public class Randomizer
 {
+	// below this many candidates, splitting scoring across threads costs more than it saves
+	@VisibleForTesting
+	static final int PARALLEL_SCORING_THRESHOLD = 32;
+	// number of partial outfits the genius intelligence keeps after each slot
+	private static final int BEAM_WIDTH = 8;
+	// candidates the beam search may score before finishing greedily. counted rather than timed, so that the result
+	// only depends on the seed. a full beam over every slot at genius depth needs roughly this many
+	private static final int BEAM_BUDGET_SCORES = 5000;
+	// for slots that an earlier pick already hid
+	private static final Allowed NOTHING_ALLOWED = new Allowed(Collections.emptyList(), Collections.emptySet());
+
 	private final Layers layers;
 	private final Locks locks;
 	private final FashionscapeConfig config;
 	private final ColorScorer colorScorer;
-	private final Client client;
-	private final ItemManager itemManager;
 	private final Exclusions exclusions;
+	private final ItemSearchIndex itemSearchIndex;
 
-	private final Map<KitType, List<SlotInfo>> slotToItemsMemo = new HashMap<>();
+	// built once exclusions have loaded and never modified, so it can be shared with background generation
+	private volatile Memo memo;
 	private final Random random = new Random();
 
+	@Value
+	private static class Memo
+	{
+		// items by slot, then grouped by the slots they hide (as a bitmask of KitType ordinals)
+		Map<KitType, Map<Integer, List<SlotInfo>>> items;
+		// same as items, without members items
+		Map<KitType, Map<Integer, List<SlotInfo>>> freeItems;
+		// every item by id, with the hidden mask that it's grouped by, so that colour index matches can be checked
+		Map<Integer, SlotInfo> byId;
+		Map<Integer, Integer> hiddenMasks;
+	}
+
+	/**
+	 * Items that the locks allow in a slot, and the groups (hidden masks) of the memo they came from
+	 */
+	@Value
+	private static class Allowed
+	{
+		List<SlotInfo> items;
+		Set<Integer> groups;
+	}
+
+	/**
+	 * Everything generation needs from the client thread's state, copied there so that outfits can be generated
+	 * on other threads
+	 */
+	@Value
+	public static class Snapshot
+	{
+		Locks.Snapshot locks;
+		@Nullable
+		Integer gender;
+		// locked parts of the outfit, which generated parts are scored against
+		ImmutableMap<KitType, Integer> lockedItems;
+		ImmutableMap<ColorType, Colorable> lockedColors;
+	}
+
+	/**
+	 * A partial outfit considered by the beam search
+	 */
+	@Value
+	private static class BeamState
+	{
+		List<SlotInfo> items;
+		// slots (as a bitmask of KitType ordinals) that are neither filled nor hidden yet
+		int remainingMask;
+		// sum of each item's score against the items picked before it
+		double score;
+	}
+
 	@VisibleForTesting
 	void setRandomSeed(long seed)
 	{
@@ -61,41 +129,97 @@ public class Randomizer
 
 	public Diff shuffle()
 	{
-		if (slotToItemsMemo.isEmpty())
+		return apply(generate(snapshot(), colorScorer.createPlayerColors(), random));
+	}
+
+	/**
+	 * Copies the locks and the locked parts of the outfit for generating outfits elsewhere.
+	 * Should be called from the client thread.
+	 */
+	public Snapshot snapshot()
+	{
+		Locks.Snapshot lockSnapshot = locks.snapshot();
+		ModelInfo info = layers.getVirtualModels();
+		Map<KitType, Integer> lockedItems = lockSnapshot.getItems().values().stream()
+			.filter(i -> lockSnapshot.contains(i.getSlot()))
+			.collect(Collectors.toMap(SlotInfo::getSlot, SlotInfo::getItemId));
+		if (lockSnapshot.isIcon() && info.getIcon() != null && info.getIcon() != JawIcon.NOTHING)
 		{
-			repopulateMemo();
+			// consider only the icon part of the model, not the built-in facial hair
+			Integer iconItemId = JawKit.NO_JAW.getIconItemId(info.getIcon());
+			if (iconItemId != null)
+			{
+				lockedItems.put(KitType.JAW, iconItemId);
+			}
 		}
+		Map<ColorType, Colorable> lockedColors = info.getColors().getAllColorable().entrySet().stream()
+			.filter(e -> lockSnapshot.getColor(e.getKey()))
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		return new Snapshot(lockSnapshot, layers.getGender(), ImmutableMap.copyOf(lockedItems),
+			ImmutableMap.copyOf(lockedColors));
+	}
 
-		RandomizerIntelligence intelligence = config.randomizerIntelligence();
-		if (intelligence != RandomizerIntelligence.NONE)
+	/**
+	 * Generates `count` outfits and returns the `keep` most cohesive, best first (or most mismatched, if cursed).
+	 * Nothing is applied, and only the snapshot is read, so this can run in the background.
+	 * Outfits are generated in parallel, but each from its own seed, so the batch still only depends on the main seed.
+	 */
+	public List<Outfit> shuffleBatch(Snapshot snapshot, int count, int keep)
+	{
+		// each outfit gets its own generator, seeded up front so the batch only depends on the main seed
+		long[] seeds = new long[count];
+		for (int i = 0; i < count; i++)
 		{
-			computeLockedColorScores();
+			seeds[i] = random.nextLong();
 		}
+		int multiplier = config.randomizerIntelligence() == RandomizerIntelligence.CURSED ? -1 : 1;
+		List<Outfit> outfits = Arrays.stream(seeds)
+			.parallel()
+			.mapToObj(seed -> {
+				Outfit outfit = generate(snapshot, colorScorer.createPlayerColors(), new Random(seed));
+				return outfit.withCohesion(cohesion(snapshot, outfit));
+			})
+			.collect(Collectors.toList());
+		outfits.sort(Comparator.comparingDouble(o -> -multiplier * o.getCohesion()));
+		return new ArrayList<>(outfits.subList(0, Math.min(keep, outfits.size())));
+	}
+
+	/**
+	 * Generates an outfit for the snapshotted locks without applying it, so this can run in the background.
+	 */
+	public Outfit generate(Snapshot snapshot)
+	{
+		return generate(snapshot, colorScorer.createPlayerColors(), new Random(random.nextLong()));
+	}
+
+	/**
+	 * Whether the current locks still allow every item and kit of a previously generated outfit
+	 */
+	public boolean isAllowed(Outfit outfit)
+	{
+		return Stream.concat(outfit.getItems().stream(), outfit.getKits().stream())
+			.allMatch(s -> locks.isAllowed(s.getSlot(), s));
+	}
+
+	/**
+	 * Sets the outfit's items, kits, icon and colours on the virtual models
+	 */
+	public Diff apply(Outfit outfit)
+	{
 		Diff diff = Diff.empty();
-		// first, try to occupy all unlocked slots with items
-		List<SlotInfo> slottedItems = findItems();
-		for (SlotInfo item : slottedItems)
+		for (SlotInfo item : outfit.getItems())
 		{
 			diff = Diff.merge(layers.set(item.getSlot(), item, false), diff);
 		}
-
-		// next, try to occupy remaining slots with random kits (no color scoring since they're recolor-able)
-		List<SlotInfo> slottedKits = findKits(slottedItems);
-		for (SlotInfo kit : slottedKits)
+		for (SlotInfo kit : outfit.getKits())
 		{
 			diff = Diff.merge(layers.set(kit.getSlot(), kit, false), diff);
 		}
-
-		// find the icon that most closely matches on color
-		JawIcon icon = findIcon();
-		if (icon != null)
+		if (outfit.getIcon() != null)
 		{
-			diff = Diff.merge(layers.setIcon(icon, false), diff);
+			diff = Diff.merge(layers.setIcon(outfit.getIcon(), false), diff);
 		}
-
-		// lastly, shuffle the player's base model colors
-		Map<ColorType, Colorable> colors = findColors();
-		for (Map.Entry<ColorType, Colorable> entry : colors.entrySet())
+		for (Map.Entry<ColorType, Colorable> entry : outfit.getColors().entrySet())
 		{
 			ColorType colorType = entry.getKey();
 			Colorable color = entry.getValue();
@@ -104,58 +228,134 @@ public class Randomizer
 		return diff;
 	}
 
-	public void repopulateMemo()
+	/**
+	 * Builds the memo if exclusions have loaded and it hasn't been built yet. Safe to call from any thread.
+	 */
+	public void ensureMemo()
+	{
+		memo();
+	}
+
+	private Outfit generate(Snapshot snapshot, PlayerColors playerColors, Random random)
 	{
-		slotToItemsMemo.clear();
-		Set<Integer> skips = exclusions.getAll();
-		for (int i = 0; i < client.getItemCount(); i++)
+		RandomizerIntelligence intelligence = config.randomizerIntelligence();
+		if (intelligence != RandomizerIntelligence.NONE)
 		{
-			int canonical = itemManager.canonicalize(i);
-			// can skip banknote/placeholder items since the canonical version will come up eventually
-			if (i != canonical || skips.contains(canonical))
-			{
-				continue;
-			}
-			ItemComposition itemComposition = itemManager.getItemComposition(i);
-			int itemId = itemComposition.getId();
-			KitType slot = ItemSlotUtil.getSlot(itemId, itemManager);
-			if (slot == null)
+			computeLockedColorScores(snapshot, playerColors);
+		}
+		// first, try to occupy all unlocked slots with items
+		List<SlotInfo> items = intelligence == RandomizerIntelligence.GENIUS ?
+			findItemsBeam(snapshot, playerColors, random) :
+			findItems(snapshot, playerColors, random);
+		// next, try to occupy remaining slots with random kits (no color scoring since they're recolor-able)
+		List<SlotInfo> kits = findKits(snapshot, items, random);
+		// find the icon that most closely matches on color
+		JawIcon icon = findIcon(snapshot, playerColors, random);
+		// lastly, shuffle the player's base model colors
+		Map<ColorType, Colorable> colors = findColors(snapshot, playerColors, random);
+		return new Outfit(items, kits, icon, colors, 0);
+	}
+
+	/**
+	 * Average score of each randomized item and colour against the rest of the outfit, including locked parts
+	 */
+	private double cohesion(Snapshot snapshot, Outfit outfit)
+	{
+		PlayerColors playerColors = colorScorer.createPlayerColors();
+		computeLockedColorScores(snapshot, playerColors);
+		outfit.getItems().forEach(i -> playerColors.addPlayerInfo(i.getSlot(), i.getItemId()));
+		if (outfit.getIcon() != null)
+		{
+			playerColors.addPlayerInfo(KitType.JAW, JawKit.NO_JAW.getIconItemId(outfit.getIcon()));
+		}
+		outfit.getColors().forEach(playerColors::addPlayerColor);
+		double total = 0;
+		int count = 0;
+		for (SlotInfo item : outfit.getItems())
+		{
+			total += playerColors.score(item.getItemId(), item.getSlot());
+			count++;
+		}
+		for (Map.Entry<ColorType, Colorable> entry : outfit.getColors().entrySet())
+		{
+			total += playerColors.score(entry.getValue(), entry.getKey());
+			count++;
+		}
+		return count > 0 ? total / count : 0;
+	}
+
+	private Memo memo()
+	{
+		Memo result = memo;
+		if (result != null)
+		{
+			return result;
+		}
+		synchronized (this)
+		{
+			if (memo == null)
 			{
-				continue;
+				List<ItemCatalog.Item> equippable = exclusions.getEquippable();
+				if (equippable == null)
+				{
+					// nothing to randomize with yet. don't keep this, so that it's built once exclusions load
+					Map<KitType, Map<Integer, List<SlotInfo>>> empty = Collections.emptyMap();
+					return new Memo(empty, empty, Collections.emptyMap(), Collections.emptyMap());
+				}
+				memo = buildMemo(equippable);
 			}
-			SlotInfo slotInfo = SlotInfo.lookUp(itemId + FashionManager.ITEM_OFFSET, slot);
-			List<SlotInfo> itemsInSlot = slotToItemsMemo.getOrDefault(slot, new ArrayList<>());
-			itemsInSlot.add(slotInfo);
-			slotToItemsMemo.put(slot, itemsInSlot);
+			return memo;
 		}
 	}
 
-	private void computeLockedColorScores()
+	// the catalog already looked up every item, so this doesn't need compositions or the client thread
+	private static Memo buildMemo(List<ItemCatalog.Item> equippable)
 	{
-		ModelInfo info = layers.getVirtualModels();
-		Map<KitType, Integer> lockedItems = info.getItems().getAll().values().stream()
-			.filter(i -> locks.contains(i.getSlot()))
-			.collect(Collectors.toMap(SlotInfo::getSlot, SlotInfo::getItemId));
-		if (locks.isIcon() && info.getIcon() != null && info.getIcon() != JawIcon.NOTHING)
+		Map<KitType, Map<Integer, List<SlotInfo>>> items = new EnumMap<>(KitType.class);
+		Map<KitType, Map<Integer, List<SlotInfo>>> freeItems = new EnumMap<>(KitType.class);
+		Map<Integer, SlotInfo> byId = new HashMap<>();
+		Map<Integer, Integer> hiddenMasks = new HashMap<>();
+		for (ItemCatalog.Item item : equippable)
 		{
-			// consider only the icon part of the model, not the built-in facial hair
-			Integer iconItemId = JawKit.NO_JAW.getIconItemId(info.getIcon());
-			if (iconItemId != null)
+			SlotInfo slotInfo = SlotInfo.lookUp(item.getItemId() + FashionManager.ITEM_OFFSET, item.getSlot());
+			addToMemo(items, slotInfo, item.getHiddenMask());
+			if (!item.isMembers())
 			{
-				lockedItems.put(KitType.JAW, iconItemId);
+				addToMemo(freeItems, slotInfo, item.getHiddenMask());
 			}
+			byId.put(item.getItemId(), slotInfo);
+			hiddenMasks.put(item.getItemId(), item.getHiddenMask());
 		}
-		Map<ColorType, Colorable> lockedColors = info.getColors().getAllColorable().entrySet().stream()
-			.filter(e -> locks.getColor(e.getKey()))
-			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-		colorScorer.setPlayerInfo(lockedItems, lockedColors);
+		return new Memo(items, freeItems, byId, hiddenMasks);
+	}
+
+	private static void addToMemo(Map<KitType, Map<Integer, List<SlotInfo>>> memo, SlotInfo slotInfo, int hidden)
+	{
+		memo.computeIfAbsent(slotInfo.getSlot(), s -> new LinkedHashMap<>())
+			.computeIfAbsent(hidden, h -> new ArrayList<>())
+			.add(slotInfo);
+	}
+
+	private static int mask(Collection<KitType> slots)
+	{
+		int mask = 0;
+		for (KitType slot : slots)
+		{
+			mask |= 1 << slot.ordinal();
+		}
+		return mask;
+	}
+
+	private static void computeLockedColorScores(Snapshot snapshot, PlayerColors playerColors)
+	{
+		playerColors.setPlayerInfo(snapshot.lockedItems, snapshot.lockedColors, snapshot.gender);
 	}
 
 	@VisibleForTesting
-	List<SlotInfo> findItems()
+	List<SlotInfo> findItems(Snapshot snapshot, PlayerColors playerColors, Random random)
 	{
 		List<KitType> remainingItemSlots = Arrays.stream(KitType.values())
-			.filter(s -> !locks.contains(s))
+			.filter(s -> !snapshot.locks.contains(s))
 			.collect(Collectors.toList());
 		Collections.shuffle(remainingItemSlots, random);
 		List<SlotInfo> result = new ArrayList<>();
@@ -168,39 +368,217 @@ public class Randomizer
 			{
 				continue;
 			}
-			// items in this slot cannot conflict with locked or already-filled slots
-			Set<KitType> remainingSet = new HashSet<>(remainingItemSlots);
-			List<SlotInfo> allCandidates = slotToItemsMemo.getOrDefault(slot, new ArrayList<>()).stream()
-				.filter(slotInfo -> locks.isAllowed(slot, slotInfo) &&
-					remainingSet.containsAll(slotInfo.getHidden()))
-				.collect(Collectors.toList());
+			Allowed allowed = allowedItems(snapshot, slot, mask(remainingItemSlots));
+			List<SlotInfo> allCandidates = allowed.items;
 			if (!allCandidates.isEmpty())
 			{
 				List<SlotInfo> candidates = ListUtil.takeRandomSample(allCandidates, intelligence.getDepth(), random);
+				if (intelligence != RandomizerIntelligence.NONE && intelligence != RandomizerIntelligence.CURSED)
+				{
+					candidates = withColorMatches(snapshot, playerColors, slot, candidates, allowed,
+						Math.max(1, intelligence.getDepth() / 4));
+				}
 				int multiplier = intelligence == RandomizerIntelligence.CURSED ? -1 : 1;
-				SlotInfo bestMatch = candidates.stream()
-					.max(Comparator.comparingDouble(c -> multiplier * colorScorer.score(c.getItemId(), c.getSlot())))
-					.orElse(candidates.get(0));
+				SlotInfo bestMatch = bestMatch(playerColors, slot, candidates, multiplier);
 				result.add(bestMatch);
 				// also remove slots that the match hides
 				bestMatch.getHidden().forEach(remainingItemSlots::remove);
-				colorScorer.addPlayerInfo(bestMatch.getSlot(), bestMatch.getItemId());
+				playerColors.addPlayerInfo(bestMatch.getSlot(), bestMatch.getItemId());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Fills the same slots as `findItems`, but keeps the best few partial outfits after each slot instead of only one,
+	 * so that an early pick which doesn't go well with later slots can still be dropped. Finishes with the partial
+	 * outfit that is most cohesive as a whole. Falls back to one partial outfit per slot once the scoring budget is spent.
+	 */
+	@VisibleForTesting
+	List<SlotInfo> findItemsBeam(Snapshot snapshot, PlayerColors playerColors, Random random)
+	{
+		List<KitType> slots = Arrays.stream(KitType.values())
+			.filter(s -> !snapshot.locks.contains(s))
+			.collect(Collectors.toList());
+		Collections.shuffle(slots, random);
+		int depth = config.randomizerIntelligence().getDepth();
+		int budget = BEAM_BUDGET_SCORES;
+		List<BeamState> beam = Collections.singletonList(new BeamState(Collections.emptyList(), mask(slots), 0));
+		for (KitType slot : slots)
+		{
+			int slotBit = 1 << slot.ordinal();
+			// jaw items are handled later as icons, but the slot stays open so that items may hide it
+			if (slot == KitType.JAW)
+			{
+				continue;
+			}
+			int width = budget > 0 ? BEAM_WIDTH : 1;
+			List<BeamState> next = new ArrayList<>();
+			for (BeamState state : beam)
+			{
+				int remainingMask = state.remainingMask & ~slotBit;
+				Allowed allowed = (state.remainingMask & slotBit) != 0 ?
+					allowedItems(snapshot, slot, remainingMask) :
+					NOTHING_ALLOWED;
+				List<SlotInfo> allCandidates = allowed.items;
+				if (allCandidates.isEmpty())
+				{
+					// slot was hidden by an earlier pick, or nothing fits
+					next.add(new BeamState(state.items, remainingMask, state.score));
+					continue;
+				}
+				PlayerColors stateColors = withItems(snapshot, state.items);
+				List<SlotInfo> candidates = withColorMatches(snapshot, stateColors, slot,
+					ListUtil.takeRandomSample(allCandidates, depth, random), allowed, Math.max(1, depth / 4));
+				ColorScorer.Palette palette = stateColors.palette(slot);
+				double[] scores = new double[candidates.size()];
+				IntStream indices = IntStream.range(0, scores.length);
+				if (scores.length >= PARALLEL_SCORING_THRESHOLD)
+				{
+					indices = indices.parallel();
+				}
+				indices.forEach(i -> scores[i] = stateColors.score(candidates.get(i).getItemId(), palette));
+				budget -= scores.length;
+				// only the best few extensions of each state can make it into the next beam
+				Integer[] order = IntStream.range(0, scores.length).boxed().toArray(Integer[]::new);
+				Arrays.sort(order, Comparator.comparingDouble(i -> -scores[i]));
+				for (int k = 0; k < Math.min(width, order.length); k++)
+				{
+					SlotInfo match = candidates.get(order[k]);
+					List<SlotInfo> items = new ArrayList<>(state.items);
+					items.add(match);
+					next.add(new BeamState(items, remainingMask & ~mask(match.getHidden()),
+						state.score + scores[order[k]]));
+				}
+			}
+			next.sort(Comparator.comparingDouble(s -> -s.score));
+			beam = next.size() > width ? next.subList(0, width) : next;
+		}
+		// running scores favour whichever items were picked first, so judge the finished outfits as a whole
+		BeamState best = beam.get(0);
+		double bestCohesion = cohesion(snapshot, best.items);
+		for (int i = 1; i < beam.size(); i++)
+		{
+			double cohesion = cohesion(snapshot, beam.get(i).items);
+			if (cohesion > bestCohesion)
+			{
+				best = beam.get(i);
+				bestCohesion = cohesion;
+			}
+		}
+		best.items.forEach(i -> playerColors.addPlayerInfo(i.getSlot(), i.getItemId()));
+		return best.items;
+	}
+
+	/**
+	 * Items of the memo that can go in the slot without hiding anything outside of `remainingMask`.
+	 * Whether locks allow an item only depends on its slot and hidden slots, so they're checked once per group.
+	 */
+	private Allowed allowedItems(Snapshot snapshot, KitType slot, int remainingMask)
+	{
+		List<SlotInfo> result = new ArrayList<>();
+		Set<Integer> allowedGroups = new HashSet<>();
+		Memo current = memo();
+		Map<KitType, Map<Integer, List<SlotInfo>>> memoItems = config.excludeMembersItems() ?
+			current.freeItems :
+			current.items;
+		Map<Integer, List<SlotInfo>> groups = memoItems.getOrDefault(slot, Collections.emptyMap());
+		for (Map.Entry<Integer, List<SlotInfo>> group : groups.entrySet())
+		{
+			List<SlotInfo> items = group.getValue();
+			if ((group.getKey() & ~remainingMask) == 0 && snapshot.locks.isAllowed(slot, items.get(0)))
+			{
+				result.addAll(items);
+				allowedGroups.add(group.getKey());
+			}
+		}
+		return new Allowed(result, allowedGroups);
+	}
+
+	// locked parts of the outfit plus the given items
+	private PlayerColors withItems(Snapshot snapshot, List<SlotInfo> items)
+	{
+		PlayerColors result = colorScorer.createPlayerColors();
+		computeLockedColorScores(snapshot, result);
+		items.forEach(i -> result.addPlayerInfo(i.getSlot(), i.getItemId()));
+		return result;
+	}
+
+	private double cohesion(Snapshot snapshot, List<SlotInfo> items)
+	{
+		return cohesion(snapshot, new Outfit(items, Collections.emptyList(), null, Collections.emptyMap(), 0));
+	}
+
+	/**
+	 * Picks the candidate with the highest score times multiplier. Candidates are scored in parallel against one
+	 * snapshot of the outfit so far, and ties go to the earliest candidate, so the pick only depends on the seed.
+	 */
+	private SlotInfo bestMatch(PlayerColors playerColors, KitType slot, List<SlotInfo> candidates, int multiplier)
+	{
+		ColorScorer.Palette palette = playerColors.palette(slot);
+		double[] scores = new double[candidates.size()];
+		IntStream indices = IntStream.range(0, scores.length);
+		if (scores.length >= PARALLEL_SCORING_THRESHOLD)
+		{
+			indices = indices.parallel();
+		}
+		indices.forEach(i -> scores[i] = multiplier * playerColors.score(candidates.get(i).getItemId(), palette));
+		int best = 0;
+		for (int i = 1; i < scores.length; i++)
+		{
+			if (scores[i] > scores[best])
+			{
+				best = i;
+			}
+		}
+		return candidates.get(best);
+	}
+
+	/**
+	 * Adds the allowed items closest to the outfit's dominant colour, which a random sample would rarely contain.
+	 * So besides the random sample of `RandomizerIntelligence.getDepth` items, up to `count` more are scored.
+	 */
+	private List<SlotInfo> withColorMatches(Snapshot snapshot, PlayerColors playerColors, KitType slot,
+											List<SlotInfo> sample, Allowed allowed, int count)
+	{
+		Integer rgb = playerColors.palette(slot).getDominantRgb();
+		if (rgb == null)
+		{
+			return sample;
+		}
+		Memo current = memo();
+		Set<Integer> sampledIds = sample.stream()
+			.map(SlotInfo::getItemId)
+			.collect(Collectors.toSet());
+		List<SlotInfo> result = new ArrayList<>(sample);
+		// an item is allowed if the memo has it in one of the allowed groups (the index already checks members)
+		List<ItemSearchIndex.ColorMatch> matches = itemSearchIndex.searchByColor(rgb, slot, snapshot.gender, count,
+			e -> {
+				Integer hiddenMask = current.hiddenMasks.get(e.getItemId());
+				return hiddenMask != null && allowed.groups.contains(hiddenMask);
+			});
+		for (ItemSearchIndex.ColorMatch match : matches)
+		{
+			int itemId = match.getEntry().getItemId();
+			if (!sampledIds.contains(itemId))
+			{
+				result.add(current.byId.get(itemId));
 			}
 		}
 		return result;
 	}
 
 	@VisibleForTesting
-	List<SlotInfo> findKits(List<SlotInfo> existingItems)
+	List<SlotInfo> findKits(Snapshot snapshot, List<SlotInfo> existingItems, Random random)
 	{
 		List<SlotInfo> result = new ArrayList<>();
-		Integer gender = layers.getGender();
+		Integer gender = snapshot.gender;
 		if (gender != null && !config.excludeBaseModels())
 		{
 			// check locks and items from last step to ensure kit model can be shown
 			List<KitType> remainingKitSlots = Arrays.stream(KitType.values())
 				// kit id doesn't matter, just need to check if kit is allowed for current locks
-				.filter(slot -> locks.isAllowed(slot, SlotInfo.kit(0, slot)) &&
+				.filter(slot -> snapshot.locks.isAllowed(slot, SlotInfo.kit(0, slot)) &&
 					existingItems.stream().noneMatch(item -> item.getSlot() == slot || item.hides(slot)))
 				.collect(Collectors.toList());
 			Collections.shuffle(remainingKitSlots, random);
@@ -222,9 +600,9 @@ public class Randomizer
 	}
 
 	@VisibleForTesting
-	JawIcon findIcon()
+	JawIcon findIcon(Snapshot snapshot, PlayerColors playerColors, Random random)
 	{
-		if (locks.isIcon() || config.excludeBaseModels())
+		if (snapshot.locks.isIcon() || config.excludeBaseModels())
 		{
 			return null;
 		}
@@ -237,7 +615,7 @@ public class Randomizer
 			Map<JawIcon, Double> scores = icons.stream()
 				.collect(Collectors.toMap(i -> i, i -> {
 					Integer itemId = JawKit.NO_JAW.getIconItemId(i);
-					return itemId != null ? colorScorer.score(itemId, null) : 0;
+					return itemId != null ? playerColors.score(itemId, null) : 0;
 				}));
 			// use icon if >75% match
 			icon = scores.entrySet().stream()
@@ -255,7 +633,7 @@ public class Randomizer
 	}
 
 	@VisibleForTesting
-	Map<ColorType, Colorable> findColors()
+	Map<ColorType, Colorable> findColors(Snapshot snapshot, PlayerColors playerColors, Random random)
 	{
 		Map<ColorType, Colorable> result = new HashMap<>();
 		if (config.excludeBaseModels())
@@ -265,7 +643,7 @@ public class Randomizer
 		RandomizerIntelligence intelligence = config.randomizerIntelligence();
 		for (ColorType colorType : ColorType.values())
 		{
-			if (locks.getColor(colorType))
+			if (snapshot.locks.getColor(colorType))
 			{
 				continue;
 			}
@@ -282,6 +660,7 @@ public class Randomizer
 					limit = Math.max(1, colorables.size() / 2);
 					break;
 				case HIGH:
+				case GENIUS:
 					limit = colorables.size();
 					break;
 				default:
@@ -290,10 +669,10 @@ public class Randomizer
 			int multiplier = intelligence == RandomizerIntelligence.CURSED ? -1 : 1;
 			Colorable best = colorables.stream()
 				.limit(limit)
-				.max(Comparator.comparingDouble(c -> colorScorer.score(c, colorType) * multiplier))
+				.max(Comparator.comparingDouble(c -> playerColors.score(c, colorType) * multiplier))
 				.orElse(colorables.get(0));
 			result.put(colorType, best);
-			colorScorer.addPlayerColor(colorType, best);
+			playerColors.addPlayerColor(colorType, best);
 		}
 		return result;
 	}
@@ -4,7 +4,9 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 /**
- * Determines the size of the queue for scoring the "best" matched item via randomizer request
+ * Determines the size of the queue for scoring the "best" matched item via randomizer request.
+ * For each slot, `depth` random items are sampled. Apart from NONE and CURSED, up to `depth / 4` more are added:
+ * the allowed items whose colours are closest to the outfit's dominant colour (see ItemSearchIndex.searchByColor).
  */
 @Getter
 @RequiredArgsConstructor
@@ -14,6 +16,7 @@ public enum RandomizerIntelligence
 	LOW(10),
 	MODERATE(50),
 	HIGH(100),
+	GENIUS(50), // searches several partial outfits at once, see Randomizer.findItemsBeam
 	CURSED(50); // prefers mismatched colors
 
 	private final int depth;
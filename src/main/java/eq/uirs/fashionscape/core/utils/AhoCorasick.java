@@ -0,0 +1,181 @@
+package eq.uirs.fashionscape.core.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds which of many substrings ("needles") a text contains in a single pass over the text, rather than one
+ * `String.contains` per needle. Immutable once built, so it can be shared between threads.
+ */
+public class AhoCorasick
+{
+	private static final int[] EMPTY = new int[0];
+
+	// outgoing edges of each trie node, with chars sorted for binary search
+	private final char[][] edgeChars;
+	private final int[][] edgeTargets;
+	// node to continue from when no edge matches: the longest proper suffix that is also in the trie
+	private final int[] fail;
+	// indices of needles ending at each node, including those of its fail chain
+	private final int[][] outputs;
+	private final int needleCount;
+
+	public AhoCorasick(List<String> needles)
+	{
+		needleCount = needles.size();
+		List<Map<Character, Integer>> edges = new ArrayList<>();
+		List<List<Integer>> ends = new ArrayList<>();
+		edges.add(new TreeMap<>());
+		ends.add(new ArrayList<>());
+		for (int i = 0; i < needles.size(); i++)
+		{
+			int node = 0;
+			for (char c : needles.get(i).toCharArray())
+			{
+				Integer target = edges.get(node).get(c);
+				if (target == null)
+				{
+					target = edges.size();
+					edges.get(node).put(c, target);
+					edges.add(new TreeMap<>());
+					ends.add(new ArrayList<>());
+				}
+				node = target;
+			}
+			ends.get(node).add(i);
+		}
+
+		int size = edges.size();
+		edgeChars = new char[size][];
+		edgeTargets = new int[size][];
+		for (int node = 0; node < size; node++)
+		{
+			Map<Character, Integer> nodeEdges = edges.get(node);
+			edgeChars[node] = new char[nodeEdges.size()];
+			edgeTargets[node] = new int[nodeEdges.size()];
+			int k = 0;
+			for (Map.Entry<Character, Integer> edge : nodeEdges.entrySet())
+			{
+				edgeChars[node][k] = edge.getKey();
+				edgeTargets[node][k] = edge.getValue();
+				k++;
+			}
+		}
+
+		// breadth-first, so that a node's fail target (which is shallower) is complete before the node itself
+		fail = new int[size];
+		outputs = new int[size][];
+		outputs[0] = toSortedArray(ends.get(0), EMPTY);
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int child : edgeTargets[0])
+		{
+			outputs[child] = toSortedArray(ends.get(child), outputs[0]);
+			queue.add(child);
+		}
+		while (!queue.isEmpty())
+		{
+			int node = queue.poll();
+			for (int k = 0; k < edgeChars[node].length; k++)
+			{
+				char c = edgeChars[node][k];
+				int child = edgeTargets[node][k];
+				int f = fail[node];
+				while (f != 0 && next(f, c) < 0)
+				{
+					f = fail[f];
+				}
+				int target = next(f, c);
+				fail[child] = target < 0 ? 0 : target;
+				outputs[child] = toSortedArray(ends.get(child), outputs[fail[child]]);
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Whether the text contains at least one needle
+	 */
+	public boolean containsAny(String text)
+	{
+		if (outputs[0].length > 0)
+		{
+			return true;
+		}
+		int node = 0;
+		for (int i = 0; i < text.length(); i++)
+		{
+			node = step(node, text.charAt(i));
+			if (outputs[node].length > 0)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the indices (in ascending order) of all needles that the text contains
+	 */
+	public int[] findAll(String text)
+	{
+		BitSet found = new BitSet(needleCount);
+		int node = 0;
+		for (int o : outputs[0])
+		{
+			found.set(o);
+		}
+		for (int i = 0; i < text.length(); i++)
+		{
+			node = step(node, text.charAt(i));
+			for (int o : outputs[node])
+			{
+				found.set(o);
+			}
+		}
+		return found.stream().toArray();
+	}
+
+	private int step(int node, char c)
+	{
+		while (true)
+		{
+			int target = next(node, c);
+			if (target >= 0)
+			{
+				return target;
+			}
+			if (node == 0)
+			{
+				return 0;
+			}
+			node = fail[node];
+		}
+	}
+
+	private int next(int node, char c)
+	{
+		int k = Arrays.binarySearch(edgeChars[node], c);
+		return k >= 0 ? edgeTargets[node][k] : -1;
+	}
+
+	private static int[] toSortedArray(List<Integer> own, int[] inherited)
+	{
+		if (own.isEmpty())
+		{
+			return inherited;
+		}
+		int[] result = Arrays.copyOf(inherited, inherited.length + own.size());
+		for (int k = 0; k < own.size(); k++)
+		{
+			result[inherited.length + k] = own.get(k);
+		}
+		Arrays.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,133 @@
+package eq.uirs.fashionscape.core.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from every 3-character sequence to the (ascending) positions of the keys that contain it.
+ * Substring queries intersect the posting lists of the query's trigrams, then verify the few remaining candidates.
+ */
+public class TrigramIndex
+{
+	private static final int[] EMPTY = new int[0];
+
+	private final String[] keys;
+	private final Map<Long, int[]> postings;
+
+	public TrigramIndex(List<String> keys)
+	{
+		this.keys = keys.toArray(new String[0]);
+		Map<Long, List<Integer>> building = new HashMap<>();
+		for (int i = 0; i < this.keys.length; i++)
+		{
+			String key = this.keys[i];
+			for (int j = 0; j + 3 <= key.length(); j++)
+			{
+				List<Integer> posting = building.computeIfAbsent(trigram(key, j), t -> new ArrayList<>());
+				// keys are visited in order, so a repeated trigram within a key can only be the last entry
+				int last = posting.size() - 1;
+				if (last < 0 || posting.get(last) != i)
+				{
+					posting.add(i);
+				}
+			}
+		}
+		this.postings = new HashMap<>(building.size() * 4 / 3 + 1);
+		for (Map.Entry<Long, List<Integer>> entry : building.entrySet())
+		{
+			this.postings.put(entry.getKey(), entry.getValue().stream().mapToInt(i -> i).toArray());
+		}
+	}
+
+	public int size()
+	{
+		return keys.length;
+	}
+
+	/**
+	 * Returns the positions (in ascending order) of all keys containing the query.
+	 */
+	public int[] find(String query)
+	{
+		if (query.length() < 3)
+		{
+			return scan(query);
+		}
+		// start from the rarest trigram to keep the intersection small
+		int[][] lists = new int[query.length() - 2][];
+		for (int j = 0; j < lists.length; j++)
+		{
+			int[] posting = postings.get(trigram(query, j));
+			if (posting == null)
+			{
+				return EMPTY;
+			}
+			lists[j] = posting;
+		}
+		Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+		int[] candidates = lists[0];
+		for (int j = 1; j < lists.length && candidates.length > 0; j++)
+		{
+			candidates = intersect(candidates, lists[j]);
+		}
+		// trigrams can all be present without being contiguous, so confirm each candidate
+		int[] result = new int[candidates.length];
+		int n = 0;
+		for (int candidate : candidates)
+		{
+			if (query.length() == 3 || keys[candidate].contains(query))
+			{
+				result[n++] = candidate;
+			}
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	private int[] scan(String query)
+	{
+		int[] result = new int[keys.length];
+		int n = 0;
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i].contains(query))
+			{
+				result[n++] = i;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	private static int[] intersect(int[] a, int[] b)
+	{
+		int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.length && j < b.length)
+		{
+			if (a[i] < b[j])
+			{
+				i++;
+			}
+			else if (a[i] > b[j])
+			{
+				j++;
+			}
+			else
+			{
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	private static long trigram(String s, int start)
+	{
+		return ((long) s.charAt(start) << 32) | ((long) s.charAt(start + 1) << 16) | s.charAt(start + 2);
+	}
+}
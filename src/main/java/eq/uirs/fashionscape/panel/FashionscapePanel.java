@@ -8,6 +8,7 @@ import eq.uirs.fashionscape.core.event.HistoryChanged;
 import eq.uirs.fashionscape.core.event.IconChanged;
 import eq.uirs.fashionscape.core.event.IconLockChanged;
 import eq.uirs.fashionscape.core.event.ItemChanged;
+import eq.uirs.fashionscape.core.event.ItemsIndexed;
 import eq.uirs.fashionscape.core.event.KitChanged;
 import eq.uirs.fashionscape.core.event.KnownKitChanged;
 import eq.uirs.fashionscape.core.event.LockChanged;
@@ -238,6 +239,12 @@ public class FashionscapePanel extends PluginPanel
 		itemsPanel.onKnownKitChanged(e);
 	}
 
+	@Subscribe
+	public void onItemsIndexed(ItemsIndexed e)
+	{
+		searchPanel.refreshResults();
+	}
+
 	private void refreshButtonsEnabled()
 	{
 		checkButtonEnabled(shuffle);
@@ -312,6 +319,13 @@ public class FashionscapePanel extends PluginPanel
 		buttonContainer.add(redo, c);
 		c.gridx++;
 
+		JPopupMenu shuffleMenu = new JPopupMenu();
+		JMenuItem shuffleRanked = new JMenuItem("Randomize best matches");
+		shuffleRanked.setToolTipText("Tries many outfits at once, then steps through the best ones");
+		shuffleRanked.addActionListener(e -> clientThread.invokeLater(() ->
+			fashionManager.shuffleRanked(this::reloadResults)));
+		shuffleMenu.add(shuffleRanked);
+
 		shuffle = new JButton(PanelUtil.icon("shuffle"));
 		shuffle.setSize(12, 12);
 		shuffle.setToolTipText("Randomize");
@@ -322,6 +336,7 @@ public class FashionscapePanel extends PluginPanel
 		checkButtonEnabled(shuffle);
 		shuffle.setFocusPainted(false);
 		shuffle.addMouseListener(PanelUtil.hoverCursor(this));
+		shuffle.setComponentPopupMenu(shuffleMenu);
 		buttonContainer.add(shuffle, c);
 		c.gridx++;
 
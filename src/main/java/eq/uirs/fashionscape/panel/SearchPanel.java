@@ -5,11 +5,10 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Ints;
 import eq.uirs.fashionscape.FashionscapeConfig;
 import eq.uirs.fashionscape.colors.ColorScorer;
-import eq.uirs.fashionscape.core.Exclusions;
 import eq.uirs.fashionscape.core.FashionManager;
+import eq.uirs.fashionscape.core.ItemSearchIndex;
 import eq.uirs.fashionscape.core.LockStatus;
 import eq.uirs.fashionscape.core.event.LockChanged;
-import eq.uirs.fashionscape.core.utils.ItemSlotUtil;
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.Color;
@@ -21,8 +20,10 @@ import java.awt.event.ItemEvent;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -31,8 +32,13 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -48,8 +54,6 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.Client;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.kit.KitType;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.game.ItemManager;
@@ -60,7 +64,6 @@ import net.runelite.client.ui.components.materialtabs.MaterialTab;
 import net.runelite.client.ui.components.materialtabs.MaterialTabGroup;
 import net.runelite.client.util.AsyncBufferedImage;
 import net.runelite.client.util.ImageUtil;
-import net.runelite.client.util.SwingUtil;
 
 /**
  * Tab panel that houses the search UI: bar, filters, sort, results, etc.
@@ -69,6 +72,10 @@ import net.runelite.client.util.SwingUtil;
 public class SearchPanel extends JPanel
 {
 	private static final int DEBOUNCE_DELAY_MS = 200;
+	private static final int MAX_CACHED_ICONS = 256;
+	private static final int MAX_COLOR_RESULTS = 100;
+	// e.g. "#a0522d" finds the items closest to that colour
+	private static final Pattern COLOR_QUERY = Pattern.compile("^#([0-9a-f]{6})$");
 	private static final String ERROR_PANEL = "ERROR_PANEL";
 	private static final String RESULTS_PANEL = "RESULTS_PANEL";
 	private static final Set<KitType> VALID_SLOTS = Arrays.stream(PanelEquipSlot.values())
@@ -76,88 +83,112 @@ public class SearchPanel extends JPanel
 		.filter(Objects::nonNull)
 		.collect(Collectors.toSet());
 
-	private final Client client;
 	private final FashionManager fashionManager;
 	private final ItemManager itemManager;
 	private final ClientThread clientThread;
 	private final ScheduledExecutorService executor;
 	private final ColorScorer colorScorer;
-	private final Exclusions exclusions;
+	private final ItemSearchIndex itemSearchIndex;
 	private final boolean developerMode;
 
-	// constrain items in the list of results
-	private final GridBagConstraints itemConstraints = new GridBagConstraints();
 	private final CardLayout cardLayout = new CardLayout();
 	private final IconTextField searchBar = new IconTextField();
 	private final MaterialTabGroup slotFilter = new MaterialTabGroup();
-	private final JPanel resultsPanel = new JPanel();
+	private final SearchResultsPanel resultsPanel = new SearchResultsPanel();
 	private final JScrollPane resultsScrollPane;
 	private final JPanel centerPanel = new JPanel(cardLayout);
 	private final PluginErrorPanel errorPanel = new PluginErrorPanel();
 	private final Map<PanelEquipSlot, MaterialTab> tabMap;
-	private final List<SearchItemPanel> searchPanels = new ArrayList<>();
 
-	private final List<Result> results = new ArrayList<>();
-	private final AtomicBoolean searchInProgress = new AtomicBoolean();
+	private final List<SearchResult> results = new ArrayList<>();
+	// incremented for every requested search; a search whose generation is outdated is abandoned
+	private final AtomicLong searchGeneration = new AtomicLong();
+	private final AtomicInteger completedSearches = new AtomicInteger();
+	private final AtomicInteger cancelledSearches = new AtomicInteger();
+	// set when existing results can no longer be refined (e.g. outfit changed, affecting scores)
+	private final AtomicBoolean resultsInvalidated = new AtomicBoolean();
 	private final OnSelectionChangingListener listener = new OnSelectionChangingListener()
 	{
 		@Override
 		public void onSearchSelectionChanging(KitType slot)
 		{
-			for (SearchItemPanel item : searchPanels)
-			{
-				if (Objects.equals(item.itemId, fashionManager.virtualItemIdFor(slot)) ||
-					(item.itemId < 0 && fashionManager.isNothing(slot)))
+			// called on the client thread, where the current selection can be read. result panels are created and
+			// removed on the EDT as the view scrolls, so they're only touched there
+			Integer selectedId = fashionManager.virtualItemIdFor(slot);
+			boolean nothingSelected = fashionManager.isNothing(slot);
+			SwingUtilities.invokeLater(() -> {
+				for (SearchItemPanel item : resultsPanel.getVisiblePanels())
 				{
-					item.resetBackground();
+					if (Objects.equals(item.itemId, selectedId) || (item.itemId < 0 && nothingSelected))
+					{
+						item.resetBackground();
+					}
 				}
-			}
+			});
 		}
 	};
 
 	private Future<?> searchFuture = null;
-	private Function<ItemComposition, Boolean> filter;
+	private Predicate<ItemSearchIndex.Entry> filter;
 	private boolean allowShortQueries = false;
 	private SortBy sort;
 	private boolean sortInverted;
 	private KitType selectedSlot = null;
 	private boolean hasSearched = false;
 	private final Map<Integer, Double> scores = new HashMap<>();
+	// parameters that produced the current results, if they can be narrowed down further. guarded by results
+	@Nullable
+	private SearchParams lastSearch = null;
 
-	private final Comparator<Result> itemAlphaComparator = Comparator.comparing(Result::getName);
+	// icons of recently displayed results (only accessed from the EDT), so scrolling back doesn't request them again
+	private final Map<Integer, AsyncBufferedImage> iconCache = new LinkedHashMap<Integer, AsyncBufferedImage>(
+		MAX_CACHED_ICONS, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, AsyncBufferedImage> eldest)
+		{
+			return size() > MAX_CACHED_ICONS;
+		}
+	};
+
+	private final Comparator<SearchResult> itemAlphaComparator = Comparator.comparing(SearchResult::getName);
 
 	@Value
-	private static class Result
+	private static class SearchParams
 	{
-		@Nullable
-		ItemComposition itemComposition;
-		BufferedImage icon;
+		String query;
 		KitType slot;
-
-		int getId()
+		SortBy sort;
+		boolean sortInverted;
+
+		/**
+		 * Whether every result of `next` must also be a result of this search, with the same ordering.
+		 * Searches by id or colour can match items outside the previous results, so these are never refinements.
+		 */
+		boolean isRefinedBy(SearchParams next)
 		{
-			return itemComposition != null ? itemComposition.getId() : NothingItemComposition.ID;
+			return next.query.startsWith(query) && next.slot == slot && next.sort == sort &&
+				next.sortInverted == sortInverted && isNameQuery(query) && isNameQuery(next.query);
 		}
 
-		String getName()
+		private static boolean isNameQuery(String query)
 		{
-			return itemComposition != null ? itemComposition.getMembersName() : NothingItemComposition.NAME;
+			return Ints.tryParse(query) == null && !query.startsWith("#");
 		}
 	}
 
 	@Inject
-	public SearchPanel(Client client, FashionManager fashionManager, ClientThread clientThread,
+	public SearchPanel(FashionManager fashionManager, ClientThread clientThread,
 	                   ItemManager itemManager, ScheduledExecutorService executor,
-	                   FashionscapeConfig config, ColorScorer colorScorer, Exclusions exclusions,
+	                   FashionscapeConfig config, ColorScorer colorScorer, ItemSearchIndex itemSearchIndex,
 	                   @Named("developerMode") boolean developerMode)
 	{
-		this.client = client;
 		this.fashionManager = fashionManager;
 		this.itemManager = itemManager;
 		this.clientThread = clientThread;
 		this.executor = executor;
 		this.colorScorer = colorScorer;
-		this.exclusions = exclusions;
+		this.itemSearchIndex = itemSearchIndex;
 		this.developerMode = developerMode;
 		this.sort = config.preferredSort();
 
@@ -172,12 +203,6 @@ public class SearchPanel extends JPanel
 		groupConstraints.gridx = 0;
 		groupConstraints.gridy = 0;
 
-		itemConstraints.fill = GridBagConstraints.HORIZONTAL;
-		itemConstraints.weightx = 1;
-		itemConstraints.weighty = 0;
-		itemConstraints.gridx = 0;
-		itemConstraints.gridy = 0;
-
 		JPanel container = new JPanel();
 		container.setLayout(new GridBagLayout());
 		container.setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -186,15 +211,11 @@ public class SearchPanel extends JPanel
 		this.tabMap = setUpSlotFilters();
 		setUpSearchBar();
 
-		resultsPanel.setLayout(new GridBagLayout());
-		resultsPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
-
-		JPanel wrapper = new JPanel(new BorderLayout());
-		wrapper.setBackground(ColorScheme.DARK_GRAY_COLOR);
-		wrapper.add(resultsPanel, BorderLayout.NORTH);
-
-		resultsScrollPane = new JScrollPane(wrapper);
+		resultsScrollPane = new JScrollPane(resultsPanel);
 		resultsScrollPane.setBackground(ColorScheme.DARK_GRAY_COLOR);
+		resultsScrollPane.getViewport().setBackground(ColorScheme.DARK_GRAY_COLOR);
+		// result rows are only created once they scroll into view
+		resultsScrollPane.getViewport().addChangeListener(e -> resultsPanel.updateVisibleRows());
 		resultsScrollPane.getVerticalScrollBar().setPreferredSize(new Dimension(10, 0));
 		resultsScrollPane.setVisible(false);
 
@@ -279,16 +300,26 @@ public class SearchPanel extends JPanel
 
 	public void clearResults()
 	{
-		searchPanels.clear();
-		SwingUtil.fastRemoveAll(resultsPanel);
+		resultsPanel.clear();
 	}
 
 	public void reloadResults()
 	{
-		updateSearchDebounced();
+		refreshResults();
 		SwingUtilities.invokeLater(searchBar::requestFocusInWindow);
 	}
 
+	/**
+	 * Like `reloadResults`, but leaves keyboard focus alone, for reloads the user didn't ask for
+	 * (e.g. items finishing loading while they type their password)
+	 */
+	public void refreshResults()
+	{
+		// outfit or config may have changed, so existing results (and their scores) can't be reused
+		resultsInvalidated.set(true);
+		updateSearchDebounced();
+	}
+
 	public void chooseSlot(KitType slot)
 	{
 		PanelEquipSlot panelSlot = Arrays.stream(PanelEquipSlot.values())
@@ -304,15 +335,15 @@ public class SearchPanel extends JPanel
 
 	public void clearSearch()
 	{
+		// abandon any search in progress (clearing the text below may still request a new one)
+		searchGeneration.incrementAndGet();
+		resultsInvalidated.set(true);
 		if (!Strings.isNullOrEmpty(searchBar.getText()))
 		{
 			searchBar.setText("");
 		}
-		results.clear();
-		searchPanels.clear();
 		SwingUtilities.invokeLater(() -> {
-			SwingUtil.fastRemoveAll(resultsPanel);
-			resultsPanel.updateUI();
+			resultsPanel.clear();
 			searchBar.requestFocusInWindow();
 		});
 	}
@@ -341,18 +372,17 @@ public class SearchPanel extends JPanel
 			tab.setToolTipText(filterSlot.getDisplayName());
 			tab.addMouseListener(PanelUtil.hoverCursor(this));
 			tab.setOnSelectEvent(() -> {
-				filter = itemComposition -> {
-					KitType kitType = filterSlot.getKitType();
-					selectedSlot = kitType;
-					KitType slot = ItemSlotUtil.getSlot(itemComposition.getId(), itemManager);
+				KitType kitType = filterSlot.getKitType();
+				selectedSlot = kitType;
+				filter = entry -> {
 					if (kitType == null)
 					{
 						// allow any equipment slot that is also a KitType (so no ammo, etc.)
-						return slot != null && VALID_SLOTS.contains(slot);
+						return VALID_SLOTS.contains(entry.getSlot());
 					}
 					else
 					{
-						return Objects.equals(slot, kitType);
+						return entry.getSlot() == kitType;
 					}
 				};
 				// individual slots will show all results all the time
@@ -412,135 +442,255 @@ public class SearchPanel extends JPanel
 
 	private void updateSearchDebounced(Runnable postExec)
 	{
+		// any search that's still running is outdated as of now
+		long generation = searchGeneration.incrementAndGet();
 		Future<?> future = searchFuture;
-		if (searchFuture != null)
+		if (future != null)
 		{
 			future.cancel(false);
 		}
-		searchFuture = executor.schedule(() -> clientThread.invokeLater(() -> {
-			if (!updateSearch(postExec))
-			{
-				// search was in progress; try again later
-				updateSearchDebounced(postExec);
-			}
-		}), DEBOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
+		searchFuture = executor.schedule(() -> updateSearch(generation, postExec),
+			DEBOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
 	}
 
-	// should only be called from debouncer and on client thread
-	private boolean updateSearch(Runnable postExec)
+	private boolean isStale(long generation)
 	{
-		boolean willUpdate = searchInProgress.compareAndSet(false, true);
-		if (willUpdate)
+		return generation != searchGeneration.get();
+	}
+
+	private void onSearchCancelled(long generation)
+	{
+		int cancelled = cancelledSearches.incrementAndGet();
+		log.debug("search {} cancelled ({} completed, {} cancelled)", generation, completedSearches.get(), cancelled);
+	}
+
+	private void onSearchCompleted(long generation)
+	{
+		int completed = completedSearches.incrementAndGet();
+		log.debug("search {} completed ({} completed, {} cancelled)", generation, completed, cancelledSearches.get());
+	}
+
+	/**
+	 * Should only be called from debouncer, on the executor. Nothing here touches the client thread:
+	 * item data comes from the search index, and only the final population of results happens on the EDT.
+	 * Work is abandoned as soon as a newer search is requested, and outdated results never reach Swing.
+	 */
+	private void updateSearch(long generation, Runnable postExec)
+	{
+		synchronized (results)
 		{
+			if (isStale(generation))
+			{
+				onSearchCancelled(generation);
+				return;
+			}
+			String search = searchBar.getText().toLowerCase();
+			SearchParams params = new SearchParams(search, selectedSlot, sort, sortInverted);
+			boolean canRefine = !resultsInvalidated.getAndSet(false) && lastSearch != null &&
+				lastSearch.isRefinedBy(params);
+			if (canRefine)
+			{
+				// query was only extended, so filtering the (already sorted) results is enough
+				results.removeIf(r -> !r.getName().toLowerCase().contains(search));
+				lastSearch = params;
+				addPendingResults(generation, postExec);
+				return;
+			}
+			// until this search finishes, results can't be reused
 			results.clear();
+			lastSearch = null;
 
-			String search = searchBar.getText().toLowerCase();
 			if (!allowShortQueries && search.length() < 2)
 			{
-				searchPanels.clear();
 				SwingUtilities.invokeLater(() -> {
-					SwingUtil.fastRemoveAll(resultsPanel);
-					resultsPanel.updateUI();
+					if (isStale(generation))
+					{
+						onSearchCancelled(generation);
+						return;
+					}
+					resultsPanel.clear();
 					if (hasSearched)
 					{
 						errorPanel.setContent("Search too short", "Type a longer search for results");
 					}
 					cardLayout.show(centerPanel, ERROR_PANEL);
-					searchInProgress.set(false);
+					onSearchCompleted(generation);
 				});
-				return true;
+				return;
 			}
-			boolean isSearchForId = Ints.tryParse(search) != null;
-			Set<Integer> skips = exclusions.getAll();
-			for (int i = 0; i < client.getItemCount(); i++)
+			// index is only built once remote data has been fetched; results are reloaded when it is (see ItemsIndexed)
+			if (!itemSearchIndex.isBuilt())
 			{
-				ItemComposition itemComposition = null;
-				try
-				{
-					int canonical = itemManager.canonicalize(i);
-					// only consider canonical ids
-					if (canonical != i || (!isSearchForId && skips.contains(canonical)))
+				resultsInvalidated.set(true);
+				SwingUtilities.invokeLater(() -> {
+					if (isStale(generation))
 					{
-						continue;
+						onSearchCancelled(generation);
+						return;
 					}
-					itemComposition = itemManager.getItemComposition(canonical);
-				}
-				catch (Exception ignored)
+					resultsPanel.clear();
+					errorPanel.setContent("Loading items", "Results will appear once item data has loaded");
+					cardLayout.show(centerPanel, ERROR_PANEL);
+					onSearchCompleted(generation);
+				});
+				return;
+			}
+			scores.clear();
+			Matcher colorQuery = COLOR_QUERY.matcher(search);
+			boolean byColor = colorQuery.matches();
+			if (byColor)
+			{
+				// closest items first, scored by how close they are to the requested colour
+				colorScorer.updatePlayerInfo();
+				int rgb = Integer.parseInt(colorQuery.group(1), 16);
+				for (ItemSearchIndex.ColorMatch match : itemSearchIndex.searchByColor(rgb, selectedSlot,
+					colorScorer.getGender(), MAX_COLOR_RESULTS, filter))
 				{
+					ItemSearchIndex.Entry entry = match.getEntry();
+					results.add(new SearchResult(entry.getItemId(), entry.getName(), null, entry.getSlot()));
+					scores.put(entry.getItemId(), 1.0 - match.getDistance());
 				}
-				KitType slot = ItemSlotUtil.getSlot(i, itemManager);
-				if (itemComposition != null && slot != null && shouldDisplayResult(itemComposition, search))
+			}
+			else
+			{
+				for (ItemSearchIndex.Entry entry : itemSearchIndex.search(search, filter))
 				{
-					try
+					if (isStale(generation))
 					{
-						AsyncBufferedImage image = itemManager.getImage(itemComposition.getId());
-						results.add(new Result(itemComposition, image, slot));
-					}
-					catch (Exception ignored)
-					{
-						if (log.isDebugEnabled())
-						{
-							log.debug("could not get image for item id {}", i);
-						}
+						onSearchCancelled(generation);
+						return;
 					}
+					// item icons are requested once rows scroll into view
+					results.add(new SearchResult(entry.getItemId(), entry.getName(), null, entry.getSlot()));
+				}
+				if (selectedSlot != null && FashionManager.ALLOWS_NOTHING_ITEMS.contains(selectedSlot) &&
+					NothingItemComposition.NAME.toLowerCase().contains(search))
+				{
+					BufferedImage image = ImageUtil.loadImageResource(getClass(), selectedSlot.name().toLowerCase() + ".png");
+					results.add(0, new SearchResult(NothingItemComposition.ID, NothingItemComposition.NAME, image, selectedSlot));
 				}
-			}
-			if (selectedSlot != null && FashionManager.ALLOWS_NOTHING_ITEMS.contains(selectedSlot) &&
-				NothingItemComposition.NAME.toLowerCase().contains(search))
-			{
-				BufferedImage image = ImageUtil.loadImageResource(getClass(), selectedSlot.name().toLowerCase() + ".png");
-				results.add(0, new Result(null, image, selectedSlot));
 			}
 
-			searchPanels.clear();
-			scores.clear();
 			switch (this.sort)
 			{
 				case ITEM_ID:
-					results.sort(directed(Comparator.comparingInt(Result::getId)));
-					addPendingResults(postExec);
+					results.sort(directed(Comparator.comparingInt(SearchResult::getId)));
 					break;
 				case ALPHABETICAL:
-					executor.submit(() -> {
-						results.sort(directed(itemAlphaComparator));
-						addPendingResults(postExec);
-					});
+					results.sort(directed(itemAlphaComparator));
 					break;
 				case COLOR_MATCH:
-					executor.submit(() -> {
-						performSuggestedSort();
-						addPendingResults(postExec);
-					});
+					if (byColor)
+					{
+						// already ordered by closeness to the requested colour
+						if (sortInverted)
+						{
+							Collections.reverse(results);
+						}
+					}
+					else if (!performSuggestedSort(generation))
+					{
+						onSearchCancelled(generation);
+						return;
+					}
 					break;
 			}
+			lastSearch = params;
+			addPendingResults(generation, postExec);
 		}
-		return willUpdate;
 	}
 
-	private void performSuggestedSort()
+	/**
+	 * Scores all results in parallel against a single snapshot of the player's colours, then sorts by score.
+	 * Equal scores (e.g. items without colour data) are ordered by the colour index's closeness to the outfit's
+	 * dominant colour, then by id.
+	 * Returns false if the search became outdated before scoring finished.
+	 */
+	private boolean performSuggestedSort(long generation)
 	{
 		colorScorer.updatePlayerInfo();
-		for (Result result : results)
+		ColorScorer.Palette palette = colorScorer.palette(selectedSlot);
+		int size = results.size();
+		double[] resultScores = new double[size];
+		IntStream.range(0, size).parallel().forEach(i -> {
+			if (!isStale(generation))
+			{
+				resultScores[i] = colorScorer.score(results.get(i).getId(), palette);
+			}
+		});
+		if (isStale(generation))
+		{
+			return false;
+		}
+		int[] closeness = closenessRanks(palette.getDominantRgb());
+		// sort positions by score rather than looking scores up on every comparison
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
 		{
-			int itemId = result.getId();
-			scores.put(itemId, colorScorer.score(itemId, selectedSlot));
+			order[i] = i;
+			scores.put(results.get(i).getId(), resultScores[i]);
 		}
-		results.sort(directed(Comparator.comparingDouble(r ->
-			-scores.getOrDefault(r.getId(), 0.0))));
+		Comparator<Integer> byScore = sortInverted ?
+			(a, b) -> Double.compare(resultScores[a], resultScores[b]) :
+			(a, b) -> Double.compare(resultScores[b], resultScores[a]);
+		Arrays.sort(order, byScore.thenComparingInt(i -> closeness[i]));
+		List<SearchResult> sorted = new ArrayList<>(size);
+		for (int i : order)
+		{
+			sorted.add(results.get(i));
+		}
+		results.clear();
+		results.addAll(sorted);
+		return true;
+	}
+
+	/**
+	 * For each result, its position among the results that the colour index finds closest to the given colour,
+	 * or `MAX_COLOR_RESULTS` if it isn't among them
+	 */
+	private int[] closenessRanks(@Nullable Integer rgb)
+	{
+		int[] ranks = new int[results.size()];
+		Arrays.fill(ranks, MAX_COLOR_RESULTS);
+		if (rgb == null)
+		{
+			return ranks;
+		}
+		Map<Integer, Integer> positions = new HashMap<>();
+		for (int i = 0; i < results.size(); i++)
+		{
+			positions.putIfAbsent(results.get(i).getId(), i);
+		}
+		List<ItemSearchIndex.ColorMatch> matches = itemSearchIndex.searchByColor(rgb, selectedSlot,
+			colorScorer.getGender(), MAX_COLOR_RESULTS, e -> positions.containsKey(e.getItemId()));
+		for (int rank = 0; rank < matches.size(); rank++)
+		{
+			ranks[positions.get(matches.get(rank).getEntry().getItemId())] = rank;
+		}
+		return ranks;
 	}
 
-	private Comparator<Result> directed(Comparator<Result> comparator)
+	private Comparator<SearchResult> directed(Comparator<SearchResult> comparator)
 	{
 		return sortInverted ? comparator.reversed() : comparator;
 	}
 
 	// only to be called from updateSearch
-	private void addPendingResults(Runnable postExec)
+	private void addPendingResults(long generation, Runnable postExec)
 	{
+		// results and scores may be modified by the next search while this is still pending on the EDT
+		List<SearchResult> pending = new ArrayList<>(results);
+		boolean showScores = scores.values().stream().anyMatch(s -> s != null && s != 0.0);
+		Map<Integer, Double> pendingScores = showScores ? new HashMap<>(scores) : new HashMap<>();
 		SwingUtilities.invokeLater(() -> {
-			SwingUtil.fastRemoveAll(resultsPanel);
-			if (results.isEmpty())
+			if (isStale(generation))
+			{
+				onSearchCancelled(generation);
+				return;
+			}
+			if (pending.isEmpty())
 			{
+				resultsPanel.clear();
 				String slotName = "any";
 				if (selectedSlot != null)
 				{
@@ -552,44 +702,42 @@ public class SearchPanel extends JPanel
 			}
 			else
 			{
-				boolean showScores = scores.values().stream().anyMatch(s -> s != null && s != 0.0);
-				boolean firstItem = true;
-				for (Result result : results)
-				{
-					int itemId = result.getId();
-					Double score = showScores ? scores.get(itemId) : null;
-					SearchItemPanel panel = new SearchItemPanel(itemId, result.getIcon(),
-						result.getSlot(), itemManager, fashionManager, clientThread, listener, score, developerMode);
-					searchPanels.add(panel);
-					int topPadding = firstItem ? 0 : 5;
-					firstItem = false;
-					JPanel marginWrapper = new JPanel(new BorderLayout());
-					marginWrapper.setBackground(ColorScheme.DARK_GRAY_COLOR);
-					marginWrapper.setBorder(new EmptyBorder(topPadding, 10, 0, 10));
-					marginWrapper.add(panel, BorderLayout.NORTH);
-					resultsPanel.add(marginWrapper, itemConstraints);
-					itemConstraints.gridy++;
-				}
 				cardLayout.show(centerPanel, RESULTS_PANEL);
-				resultsPanel.updateUI();
+				resultsPanel.setResults(pending, result -> new SearchItemPanel(result.getId(), iconFor(result),
+					result.getSlot(), itemManager, fashionManager, clientThread, listener,
+					pendingScores.get(result.getId()), developerMode));
 			}
-			searchInProgress.set(false);
+			onSearchCompleted(generation);
 			postExec.run();
 		});
 	}
 
-	private boolean shouldDisplayResult(ItemComposition itemComposition, String query)
+	// only to be called from the EDT
+	@Nullable
+	private BufferedImage iconFor(SearchResult result)
 	{
-		String name = itemComposition.getMembersName().toLowerCase();
-		Integer itemId = Ints.tryParse(query);
-		// Check if query is exactly this itemId.
-		// If not, the name of the item (can't be "null") must match the input string
-		if (!Objects.equals(itemId, itemComposition.getId()) &&
-			(name.equals("null") || !name.contains(query)))
+		if (result.getIcon() != null)
 		{
-			return false;
+			return result.getIcon();
+		}
+		int itemId = result.getId();
+		AsyncBufferedImage image = iconCache.get(itemId);
+		if (image == null)
+		{
+			try
+			{
+				image = itemManager.getImage(itemId);
+				iconCache.put(itemId, image);
+			}
+			catch (Exception ignored)
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("could not get image for item id {}", itemId);
+				}
+			}
 		}
-		return filter == null || filter.apply(itemComposition);
+		return image;
 	}
 
 	private void updateTabIcon(KitType slot, @Nullable LockStatus status)
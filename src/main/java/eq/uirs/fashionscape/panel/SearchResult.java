@@ -0,0 +1,20 @@
+package eq.uirs.fashionscape.panel;
+
+import java.awt.image.BufferedImage;
+import javax.annotation.Nullable;
+import lombok.Value;
+import net.runelite.api.kit.KitType;
+
+/**
+ * A single row of search results. Items are identified by id; "nothing" uses NothingItemComposition's id.
+ */
+@Value
+class SearchResult
+{
+	int id;
+	String name;
+	// null for items, whose icons are only requested once displayed
+	@Nullable
+	BufferedImage icon;
+	KitType slot;
+}
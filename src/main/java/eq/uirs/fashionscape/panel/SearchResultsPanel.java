@@ -0,0 +1,147 @@
+package eq.uirs.fashionscape.panel;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.swing.JPanel;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import net.runelite.client.ui.ColorScheme;
+
+/**
+ * Scrollable list of search results which only creates item panels for rows in (or near) the viewport.
+ * Panels are dropped once they scroll out of range, so a broad search never lays out thousands of components.
+ * Should only be accessed from the EDT.
+ */
+class SearchResultsPanel extends JPanel implements Scrollable
+{
+	// all rows are search item panels: icon plus vertical border
+	private static final int ROW_HEIGHT = AbsIconLabelPanel.ICON_SIZE.height + 10;
+	private static final int ROW_GAP = 5;
+	private static final int ROW_SPAN = ROW_HEIGHT + ROW_GAP;
+	private static final int SIDE_MARGIN = 10;
+	// extra rows materialized above/below the viewport to avoid flicker while scrolling
+	private static final int OVERSCAN = 5;
+
+	private final Map<Integer, SearchItemPanel> rowPanels = new HashMap<>();
+	private List<SearchResult> results = Collections.emptyList();
+	private Function<SearchResult, SearchItemPanel> panelFactory;
+
+	SearchResultsPanel()
+	{
+		setLayout(null);
+		setBackground(ColorScheme.DARK_GRAY_COLOR);
+	}
+
+	void setResults(List<SearchResult> results, Function<SearchResult, SearchItemPanel> panelFactory)
+	{
+		removeRows();
+		this.results = new ArrayList<>(results);
+		this.panelFactory = panelFactory;
+		revalidate();
+		updateVisibleRows();
+	}
+
+	void clear()
+	{
+		setResults(Collections.emptyList(), null);
+	}
+
+	// panels that currently exist; rows outside the viewport have none. EDT only, since scrolling changes them
+	Collection<SearchItemPanel> getVisiblePanels()
+	{
+		return rowPanels.values();
+	}
+
+	/**
+	 * Creates panels for rows that came into range and removes those that left it.
+	 * Should be called whenever the viewport moves.
+	 */
+	void updateVisibleRows()
+	{
+		Rectangle visible = getVisibleRect();
+		int first = Math.max(0, visible.y / ROW_SPAN - OVERSCAN);
+		int last = Math.min(results.size() - 1, (visible.y + visible.height) / ROW_SPAN + OVERSCAN);
+		Iterator<Map.Entry<Integer, SearchItemPanel>> it = rowPanels.entrySet().iterator();
+		while (it.hasNext())
+		{
+			Map.Entry<Integer, SearchItemPanel> entry = it.next();
+			if (entry.getKey() < first || entry.getKey() > last)
+			{
+				remove(entry.getValue());
+				it.remove();
+			}
+		}
+		int width = Math.max(0, getWidth() - 2 * SIDE_MARGIN);
+		for (int i = first; i <= last && panelFactory != null; i++)
+		{
+			SearchItemPanel panel = rowPanels.get(i);
+			if (panel == null)
+			{
+				panel = panelFactory.apply(results.get(i));
+				rowPanels.put(i, panel);
+				add(panel);
+			}
+			panel.setBounds(SIDE_MARGIN, i * ROW_SPAN, width, ROW_HEIGHT);
+		}
+		repaint();
+	}
+
+	private void removeRows()
+	{
+		rowPanels.clear();
+		removeAll();
+		repaint();
+	}
+
+	@Override
+	public void doLayout()
+	{
+		// width may have changed
+		updateVisibleRows();
+	}
+
+	@Override
+	public Dimension getPreferredSize()
+	{
+		int height = results.isEmpty() ? 0 : results.size() * ROW_SPAN - ROW_GAP;
+		return new Dimension(0, height);
+	}
+
+	@Override
+	public Dimension getPreferredScrollableViewportSize()
+	{
+		return getPreferredSize();
+	}
+
+	@Override
+	public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction)
+	{
+		return orientation == SwingConstants.VERTICAL ? ROW_SPAN : 1;
+	}
+
+	@Override
+	public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction)
+	{
+		return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportWidth()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean getScrollableTracksViewportHeight()
+	{
+		return false;
+	}
+}
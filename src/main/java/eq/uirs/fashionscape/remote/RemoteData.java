@@ -17,6 +17,8 @@ public class RemoteData
 	public static final Map<Integer, GenderItemColors> ITEM_ID_TO_COLORS = new ConcurrentHashMap<>();
 	public static final Queue<AnimationData> ANIM_DATA = new ConcurrentLinkedQueue<>();
 	public static MiscData MISC_DATA = null;
+	// CRC32 of each category's json, identifying the version of the data that was fetched
+	public static final Map<RemoteCategory, Long> CHECKSUMS = new ConcurrentHashMap<>();
 
 	static void setItemInfo(Map<Integer, ItemSlotInfo> info)
 	{
@@ -40,4 +42,9 @@ public class RemoteData
 	{
 		MISC_DATA = miscData;
 	}
+
+	static void setChecksum(RemoteCategory category, long checksum)
+	{
+		CHECKSUMS.put(category, checksum);
+	}
 }
@@ -13,6 +13,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -121,7 +123,8 @@ public class RemoteDataHandler
 	private void onSuccess(RemoteCategory category, ResponseBody body)
 	{
 		failedCategories.remove(category);
-		Reader reader = new BufferedReader(new InputStreamReader(body.byteStream()));
+		CheckedInputStream stream = new CheckedInputStream(body.byteStream(), new CRC32());
+		Reader reader = new BufferedReader(new InputStreamReader(stream));
 		Type type = category.deserializedType();
 		switch (category)
 		{
@@ -138,6 +141,7 @@ public class RemoteDataHandler
 				RemoteData.setMiscData(gson.fromJson(reader, type));
 				break;
 		}
+		RemoteData.setChecksum(category, stream.getChecksum().getValue());
 	}
 
 	/**
@@ -0,0 +1,69 @@
+package eq.uirs.fashionscape.colors;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ColorIndexTest
+{
+	private final ColorIndex index = new ColorIndex(new int[]{10, 11, 12, 13},
+		ImmutableList.of(
+			colors(new int[]{0xFF0000, 0x0000FF}, new double[]{0.8, 0.2}),
+			colors(new int[]{0x00FF00}, new double[]{1.0}),
+			colors(new int[]{0xF00000}, new double[]{1.0}),
+			// largest colours are kept, so the tiny white part is never matched
+			colors(new int[]{0x101010, 0x202020, 0x303030, 0xFFFFFF}, new double[]{0.3, 0.3, 0.3, 0.1})
+		));
+
+	@Test
+	void nearestFirst()
+	{
+		assertEquals(ImmutableList.of(12, 10, 13), keys(index.nearest(0xE00000, 3, k -> true)));
+	}
+
+	@Test
+	void distinctKeys()
+	{
+		// item 10 has two colours, but only appears once
+		List<ColorIndex.Match> matches = index.nearest(0x0000FF, 4, k -> true);
+		assertEquals(4, matches.size());
+		assertEquals(10, matches.get(0).getKey());
+		assertEquals(4, matches.stream().map(ColorIndex.Match::getKey).distinct().count());
+	}
+
+	@Test
+	void exactMatchHasZeroDistance()
+	{
+		List<ColorIndex.Match> matches = index.nearest(0x00FF00, 1, k -> true);
+		assertEquals(11, matches.get(0).getKey());
+		assertEquals(0.0, matches.get(0).getDistance(), 1e-6);
+	}
+
+	@Test
+	void skipsRejectedKeys()
+	{
+		assertEquals(ImmutableList.of(10, 13), keys(index.nearest(0xE00000, 2, k -> k != 12)));
+	}
+
+	@Test
+	void onlyDominantColors()
+	{
+		List<ColorIndex.Match> matches = index.nearest(0xFFFFFF, 1, k -> k == 13);
+		assertTrue(matches.get(0).getDistance() > 0.5);
+		// 2 + 1 + 1 + 3 points
+		assertEquals(7, index.size());
+	}
+
+	private static ItemColors colors(int[] rgb, double[] pct)
+	{
+		return new ItemColors(rgb, pct);
+	}
+
+	private static List<Integer> keys(List<ColorIndex.Match> matches)
+	{
+		return matches.stream().map(ColorIndex.Match::getKey).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,46 @@
+package eq.uirs.fashionscape.colors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class LabColorTest
+{
+	private static final double DELTA = 0.01;
+
+	@Test
+	void convertsKnownColors()
+	{
+		float[] lab = new float[9];
+		LabColor.fromRgb(0xFFFFFF, lab, 0);
+		LabColor.fromRgb(0x000000, lab, 3);
+		LabColor.fromRgb(0xFF0000, lab, 6);
+		assertEquals(100.0, lab[0], DELTA);
+		assertEquals(0.0, lab[1], DELTA);
+		assertEquals(0.0, lab[2], DELTA);
+		assertEquals(0.0, lab[3], DELTA);
+		assertEquals(53.24, lab[6], DELTA);
+		assertEquals(80.09, lab[7], DELTA);
+		assertEquals(67.20, lab[8], DELTA);
+	}
+
+	@Test
+	void ignoresAlpha()
+	{
+		float[] lab = new float[6];
+		LabColor.fromRgb(0xFF336699, lab, 0);
+		LabColor.fromRgb(0x336699, lab, 3);
+		assertEquals(0.0, LabColor.distance(lab, 0, lab, 1), DELTA);
+	}
+
+	@Test
+	void distanceIsScaled()
+	{
+		float[] lab = new float[9];
+		LabColor.fromRgb(0xFFFFFF, lab, 0);
+		LabColor.fromRgb(0x000000, lab, 3);
+		LabColor.fromRgb(0xF0F0F0, lab, 6);
+		assertEquals(1.0, LabColor.distance(lab, 0, lab, 1), DELTA);
+		assertTrue(LabColor.distance(lab, 0, lab, 2) < 0.1);
+	}
+}
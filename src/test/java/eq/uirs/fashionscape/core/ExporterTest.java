@@ -0,0 +1,104 @@
+package eq.uirs.fashionscape.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import com.google.inject.testing.fieldbinder.Bind;
+import eq.uirs.fashionscape.base.BaseLayersTest;
+import eq.uirs.fashionscape.data.color.ColorType;
+import net.runelite.api.gameval.ItemID;
+import net.runelite.api.kit.KitType;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.game.ItemManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExporterTest extends BaseLayersTest
+{
+	@Bind
+	@Mock
+	private ClientThread clientThread;
+
+	@Bind
+	@Mock
+	private ChatMessageManager chatMessageManager;
+
+	@Bind
+	@Mock
+	private ItemManager itemManager;
+
+	@Bind
+	@Mock
+	private ItemSearchIndex itemSearchIndex;
+
+	@Inject
+	private Exporter exporter;
+
+	@Test
+	void parsesIds()
+	{
+		Exporter.Imports imports = exporter.parse(ImmutableList.of(
+			"HEAD:" + ItemID.RUNE_MED_HELM,
+			"CAPE:-1",
+			"TORSO_KIT:18",
+			"HAIR_COLOR:3"
+		));
+		assertEquals(ImmutableMap.of(KitType.HEAD, ItemID.RUNE_MED_HELM), imports.getItems());
+		assertEquals(ImmutableSet.of(KitType.CAPE), imports.getNothings());
+		assertEquals(ImmutableMap.of(KitType.TORSO, 18), imports.getKits());
+		assertEquals(ImmutableMap.of(ColorType.HAIR, 3), imports.getColors());
+	}
+
+	@Test
+	void parsesItemNames()
+	{
+		when(itemSearchIndex.findByName("Rune med helm", KitType.HEAD)).thenReturn(
+			new ItemSearchIndex.Entry(ItemID.RUNE_MED_HELM, "Rune med helm", "rune med helm", KitType.HEAD, false, false));
+		Exporter.Imports imports = exporter.parse(ImmutableList.of("HEAD: Rune med helm"));
+		assertEquals(ImmutableMap.of(KitType.HEAD, ItemID.RUNE_MED_HELM), imports.getItems());
+		verify(chatMessageManager, never()).queue(any());
+	}
+
+	@Test
+	void nothingClearsItemSlot()
+	{
+		Exporter.Imports imports = exporter.parse(ImmutableList.of(
+			"CAPE:Nothing",
+			"AMULET:"
+		));
+		assertTrue(imports.getItems().isEmpty());
+		assertEquals(ImmutableSet.of(KitType.CAPE, KitType.AMULET), imports.getNothings());
+		verify(itemSearchIndex, never()).findByName(any(), any());
+	}
+
+	@Test
+	void namesIgnoredOutsideItemSlots()
+	{
+		Exporter.Imports imports = exporter.parse(ImmutableList.of(
+			"HAIR_KIT:Bald",
+			"TORSO_COLOR:red",
+			"ICON:none"
+		));
+		assertTrue(imports.getItems().isEmpty());
+		assertTrue(imports.getKits().isEmpty());
+		assertTrue(imports.getColors().isEmpty());
+		verify(itemSearchIndex, never()).findByName(any(), any());
+		verify(chatMessageManager, never()).queue(any());
+	}
+
+	@Test
+	void unknownItemNameReported()
+	{
+		Exporter.Imports imports = exporter.parse(ImmutableList.of("HEAD:Not a real helm"));
+		assertTrue(imports.getItems().isEmpty());
+		verify(chatMessageManager).queue(any());
+	}
+}
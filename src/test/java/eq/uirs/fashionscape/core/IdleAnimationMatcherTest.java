@@ -0,0 +1,36 @@
+package eq.uirs.fashionscape.core;
+
+import com.google.common.collect.ImmutableList;
+import eq.uirs.fashionscape.data.anim.AnimationData;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+public class IdleAnimationMatcherTest
+{
+	private final IdleAnimationMatcher matcher = new IdleAnimationMatcher(ImmutableList.of(
+		new AnimationData(1, "by id", null, null, null, ImmutableList.of(4151)),
+		new AnimationData(2, "staff", null, ImmutableList.of("staff"), null, null),
+		new AnimationData(3, "godsword", ImmutableList.of("armadyl godsword"), ImmutableList.of("godsword"), null, null),
+		new AnimationData(4, "bow", null, null, ImmutableList.of("^\\w+ (short|long)bow$"), null)
+	));
+
+	@Test
+	void matchesEachKindOfRule()
+	{
+		assertEquals(1, matcher.find(4151, "abyssal whip"));
+		assertEquals(2, matcher.find(1, "battlestaff"));
+		assertEquals(3, matcher.find(1, "armadyl godsword"));
+		assertEquals(4, matcher.find(1, "magic shortbow"));
+		assertNull(matcher.find(1, "bronze sword"));
+	}
+
+	@Test
+	void firstRuleWins()
+	{
+		// matches both the contains rule of 2 and the regex rule of 4
+		assertEquals(2, matcher.find(1, "staff longbow"));
+		// matches rule 1 by id, even though its name matches a later rule
+		assertEquals(1, matcher.find(4151, "saradomin godsword"));
+	}
+}
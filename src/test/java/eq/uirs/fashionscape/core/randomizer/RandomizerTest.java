@@ -0,0 +1,121 @@
+package eq.uirs.fashionscape.core.randomizer;
+
+import com.google.inject.Inject;
+import com.google.inject.testing.fieldbinder.Bind;
+import eq.uirs.fashionscape.base.BaseLayersTest;
+import eq.uirs.fashionscape.colors.ColorMatchMode;
+import eq.uirs.fashionscape.colors.GenderItemColors;
+import eq.uirs.fashionscape.colors.ItemColors;
+import eq.uirs.fashionscape.core.Exclusions;
+import eq.uirs.fashionscape.core.ItemCatalog;
+import eq.uirs.fashionscape.core.ItemSearchIndex;
+import eq.uirs.fashionscape.core.LockStatus;
+import eq.uirs.fashionscape.core.SlotInfo;
+import eq.uirs.fashionscape.core.TestData;
+import eq.uirs.fashionscape.core.layer.Locks;
+import eq.uirs.fashionscape.data.color.ColorType;
+import eq.uirs.fashionscape.remote.RemoteData;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import net.runelite.api.kit.KitType;
+import net.runelite.client.game.ItemManager;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mock;
+import static org.mockito.Mockito.when;
+
+public class RandomizerTest extends BaseLayersTest
+{
+	@Bind
+	@Mock
+	private ItemManager itemManager;
+
+	@Bind
+	@Mock
+	private ItemSearchIndex itemSearchIndex;
+
+	@Inject
+	private Exclusions exclusions;
+
+	@Inject
+	private Locks locks;
+
+	@Inject
+	private Randomizer randomizer;
+
+	// made up ids for extra head items, so that the slot has enough candidates to be scored in parallel
+	private static final int FIRST_EXTRA_HEAD_ID = 1_000_000;
+	private static final int EXTRA_HEADS = Randomizer.PARALLEL_SCORING_THRESHOLD + 8;
+
+	@BeforeEach
+	public void addColors()
+	{
+		// scores only differ (and so only depend on scoring order) if items have colours to compare
+		RemoteData.ITEM_ID_TO_COLORS.put(TestData.blueCape.getItemId(), colors(0x2030c0));
+		for (int i = 0; i < EXTRA_HEADS; i++)
+		{
+			RemoteData.ITEM_ID_TO_COLORS.put(FIRST_EXTRA_HEAD_ID + i, colors(0x010000 * (i * 6) + 0x40));
+		}
+	}
+
+	@AfterEach
+	public void removeColors()
+	{
+		RemoteData.ITEM_ID_TO_COLORS.clear();
+	}
+
+	@ParameterizedTest
+	@EnumSource(RandomizerIntelligence.class)
+	void sameSeedGeneratesSameOutfit(RandomizerIntelligence intelligence)
+	{
+		when(config.randomizerIntelligence()).thenReturn(intelligence);
+		when(config.colorMatchMode()).thenReturn(ColorMatchMode.RGB);
+		exclusions.restore(catalog(), new int[0], new int[0]);
+		// a locked item gives generated items something to be scored against from the start
+		layers.getVirtualModels().getItems().put(KitType.CAPE, TestData.blueCape);
+		locks.set(KitType.CAPE, LockStatus.ALL);
+		locks.set(ColorType.HAIR, true);
+
+		randomizer.setRandomSeed(42);
+		Outfit first = randomizer.generate(randomizer.snapshot());
+		randomizer.setRandomSeed(42);
+		Outfit second = randomizer.generate(randomizer.snapshot());
+
+		assertEquals(first, second);
+	}
+
+	private static List<ItemCatalog.Item> catalog()
+	{
+		Stream<SlotInfo> extraHeads = IntStream.range(0, EXTRA_HEADS)
+			.mapToObj(i -> SlotInfo.item(FIRST_EXTRA_HEAD_ID + i, KitType.HEAD));
+		return Stream.concat(Stream.of(TestData.redPartyHat, TestData.runeMedHelm, TestData.faceMask,
+					TestData.ironFullHelm, TestData.blueCape, TestData.hoodedCloak, TestData.camulet, TestData.blackMace,
+					TestData.white2hSword, TestData.beachBoxingGloves, TestData.studdedBody, TestData.bronzePlatebody,
+					TestData.plagueJacket, TestData.gildedKiteshield, TestData.mimeLegs, TestData.corruptedLegs,
+					TestData.leatherGloves, TestData.pinkBoots), extraHeads)
+			.map(RandomizerTest::toItem)
+			.collect(Collectors.toList());
+	}
+
+	private static GenderItemColors colors(int rgb)
+	{
+		ItemColors colors = new ItemColors(new int[]{rgb}, new double[]{1.0});
+		return new GenderItemColors(colors, null, null);
+	}
+
+	private static ItemCatalog.Item toItem(SlotInfo info)
+	{
+		int hiddenMask = 0;
+		for (KitType hidden : info.getHidden())
+		{
+			hiddenMask |= 1 << hidden.ordinal();
+		}
+		return new ItemCatalog.Item(info.getItemId(), "item " + info.getItemId(), info.getSlot(), hiddenMask, false,
+			info.getItemId(), info.getItemId());
+	}
+}
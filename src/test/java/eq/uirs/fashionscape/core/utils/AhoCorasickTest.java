@@ -0,0 +1,57 @@
+package eq.uirs.fashionscape.core.utils;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Collections;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class AhoCorasickTest
+{
+	private final AhoCorasick matcher = new AhoCorasick(ImmutableList.of(
+		"he",
+		"she",
+		"his",
+		"hers",
+		"(broken)"
+	));
+
+	@Test
+	void findsOverlappingNeedles()
+	{
+		assertArrayEquals(new int[]{0, 1, 3}, matcher.findAll("ushers"));
+		assertArrayEquals(new int[]{2}, matcher.findAll("this"));
+	}
+
+	@Test
+	void followsFailLinks()
+	{
+		// "sh" can't continue into "she", so matching has to fall back to "h" to find "his"
+		assertArrayEquals(new int[]{0, 2}, matcher.findAll("shhis he"));
+	}
+
+	@Test
+	void containsAny()
+	{
+		assertTrue(matcher.containsAny("rune platebody (broken)"));
+		assertFalse(matcher.containsAny("rune platebody"));
+		assertFalse(matcher.containsAny(""));
+	}
+
+	@Test
+	void noNeedles()
+	{
+		AhoCorasick empty = new AhoCorasick(Collections.emptyList());
+		assertFalse(empty.containsAny("anything"));
+		assertArrayEquals(new int[0], empty.findAll("anything"));
+	}
+
+	@Test
+	void emptyNeedleAlwaysMatches()
+	{
+		AhoCorasick withEmpty = new AhoCorasick(ImmutableList.of("x", ""));
+		assertTrue(withEmpty.containsAny("abc"));
+		assertArrayEquals(new int[]{1}, withEmpty.findAll("abc"));
+	}
+}
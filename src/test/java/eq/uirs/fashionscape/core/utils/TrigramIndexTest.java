@@ -0,0 +1,53 @@
+package eq.uirs.fashionscape.core.utils;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import org.junit.jupiter.api.Test;
+
+public class TrigramIndexTest
+{
+	private final List<String> names = ImmutableList.of(
+		"rune med helm",
+		"rune full helm",
+		"iron full helm",
+		"bronze platebody",
+		"hooded cloak",
+		"null"
+	);
+	private final TrigramIndex index = new TrigramIndex(names);
+
+	@Test
+	void findsSubstrings()
+	{
+		assertArrayEquals(new int[]{0, 1, 2}, index.find("helm"));
+		assertArrayEquals(new int[]{1, 2}, index.find("full helm"));
+		assertArrayEquals(new int[]{3}, index.find("platebody"));
+	}
+
+	@Test
+	void exactTrigram()
+	{
+		assertArrayEquals(new int[]{0, 1}, index.find("run"));
+	}
+
+	@Test
+	void trigramsMustBeContiguous()
+	{
+		// "rune" and "helm" both appear in the keys, but never next to each other
+		assertArrayEquals(new int[0], index.find("rune helm"));
+	}
+
+	@Test
+	void unknownTrigram()
+	{
+		assertArrayEquals(new int[0], index.find("dragon"));
+	}
+
+	@Test
+	void shortQueriesScan()
+	{
+		assertArrayEquals(new int[]{4}, index.find("k"));
+		assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, index.find(""));
+	}
+}